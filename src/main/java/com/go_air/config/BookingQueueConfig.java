@@ -0,0 +1,28 @@
+package com.go_air.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class BookingQueueConfig {
+
+    @Value("${goair.booking.queue.threads:4}")
+    private int threads;
+
+    // Writers of the per-flight booking queues (goair.booking.mode=queued). Each busy flight
+    // holds one thread and one connection while it books a batch, so keep this well below
+    // the connection pool size. Threads start on first use, none in direct mode.
+    @Bean(name = "bookingQueueExecutor")
+    ThreadPoolTaskExecutor bookingQueueExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("booking-queue-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+}
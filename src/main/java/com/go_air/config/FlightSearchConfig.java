@@ -0,0 +1,36 @@
+package com.go_air.config;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class FlightSearchConfig {
+
+    @Value("${goair.search.executor.pool-size:8}")
+    private int poolSize;
+
+    @Value("${goair.search.executor.queue-capacity:200}")
+    private int queueCapacity;
+
+    // Bounded pool for fanning out the legs of ROUND_TRIP / MULTI_CITY searches.
+    // When it is saturated the request thread runs the leg itself instead of queueing forever,
+    // still bounded by the search deadline (the leg's queries time out with it).
+    // Being an Executor bean, it would switch off Boot's applicationTaskExecutor that MVC async
+    // streams run on; spring.task.execution.mode=force keeps that one.
+    @Bean(name = "flightSearchExecutor")
+    ThreadPoolTaskExecutor flightSearchExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("flight-search-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -3,6 +3,7 @@ package com.go_air.config;
 import com.go_air.jwt.JWTSecureEntryPoint;
 import com.go_air.jwt.JwtAuthenticationFilter;
 import com.go_air.jwt.TokenBlacklistService;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
@@ -54,6 +55,8 @@ class SecurityConfig {
             .csrf(csrf -> csrf.disable())
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
             .authorizeHttpRequests(auth -> auth
+                // Async re-dispatches of streams (SSE, NDJSON) were authorized on the original request
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers(
                 		 "/auth/**",
                 		"/auth/login",
@@ -1,11 +1,19 @@
 package com.go_air.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import com.go_air.service.AdminService;
+import com.go_air.service.BookingQueues;
+import com.go_air.service.FlightInventory;
+import com.go_air.service.FlightVersions;
+import com.go_air.service.SeatHolds;
 import com.go_air.entity.Flights;
 import com.go_air.enums.AircraftSize;
 import com.go_air.enums.BookingStatus;
@@ -32,6 +40,30 @@ public class AdminController {
 
     @Autowired
     private AdminService adminService;
+
+    @Autowired
+    private FlightStreamResponses flightStreams;
+
+    @Autowired
+    private FlightVersions flightVersions;
+
+    @Autowired
+    private ResponseSnapshots snapshots;
+
+    @Autowired
+    private SeatHolds seatHolds;
+
+    @Autowired
+    private SeatStreams seatStreams;
+
+    @Autowired
+    private FlightInventory flightInventory;
+
+    @Autowired
+    private BookingQueues bookingQueues;
+
+    @Autowired
+    private IdempotentRequests idempotentRequests;
     
     @Scheduled(fixedRate = 60000) // every 1 minute
     public void updateFlightStatuses() {
@@ -54,7 +86,12 @@ public class AdminController {
             @RequestParam(required = false) AircraftSize aircraftSize,
             @RequestParam(required = false) SpecialFareType specialFareType,
             @RequestParam(defaultValue = "0") Integer page,
-            @RequestParam(defaultValue = "5") Integer limit
+            @RequestParam(defaultValue = "5") Integer limit,
+            @RequestParam(defaultValue = "id") String sortBy,   // id | price
+            @RequestParam(required = false) Long afterId,       // keyset cursor from previous page
+            @RequestParam(required = false) Integer afterPrice, // keyset cursor when sortBy=price
+            @RequestParam(defaultValue = "false") boolean facets,
+            @RequestParam(defaultValue = "1000") int priceBucketSize
     ) {
         if (stop != null && stop == 0) stop = null;
         airlines = cleanList(airlines);
@@ -73,7 +110,12 @@ public class AdminController {
                 aircraftSize,
                 specialFareType,
                 page,
-                limit
+                limit,
+                sortBy,
+                afterId,
+                afterPrice,
+                facets,
+                priceBucketSize
         );
     }
 
@@ -137,12 +179,26 @@ public class AdminController {
         }
     }
 
+    @PreAuthorize("hasAuthority('ADMIN')")
+    // Seats for many flights in one call; per flight CREATED, UPDATED, COMPLETED_NO_CHANGE or FLIGHT_NOT_FOUND
+    @PostMapping("/generate-seats")
+    public ResponseEntity<Map<String, SeatOperationStatus>> generateSeats(@RequestBody List<String> flightNumbers) {
+        if (flightNumbers == null || flightNumbers.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(adminService.generateSeatsForFlights(flightNumbers));
+    }
+
 
     
    @PreAuthorize("hasAuthority('ADMIN')")
    // Get flight by flight number
    @GetMapping("/flights/{flightNumber}")
-   public ResponseEntity<Flights> getFlightByFlightNo(@PathVariable String flightNumber) {
+   public ResponseEntity<Flights> getFlightByFlightNo(@PathVariable String flightNumber, WebRequest request) {
+      // Tag first, see FlightVersions; an unchanged flight answers 304 after one version lookup
+      String etag = flightVersions.flightTag(flightNumber);
+      if (request.checkNotModified(etag)) return null;
+
       Flights flight = adminService.getFlightByFlightNumber(flightNumber);
       return (flight != null) ? ResponseEntity.ok(flight) : ResponseEntity.notFound().build();
    }
@@ -163,6 +219,14 @@ public class AdminController {
         return ResponseEntity.ok(adminService.getAllFlights());
     }
 
+    @PreAuthorize("hasAuthority('ADMIN')")
+    // Get all flights streamed (Accept: application/x-ndjson or text/event-stream)
+    @GetMapping(value = "/flights", produces = { FlightStreamResponses.NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE })
+    public ResponseEntity<StreamingResponseBody> streamAllFlights(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return flightStreams.respond(accept, adminService::streamAllFlights);
+    }
+
 
 
     @PreAuthorize("hasAuthority('ADMIN')")
@@ -184,6 +248,62 @@ public class AdminController {
         return ResponseEntity.ok(result);
     }
     
+    @PreAuthorize("hasAuthority('ADMIN')")
+    // Search cache statistics
+    @GetMapping("/cache/search-stats")
+    public ResponseEntity<Map<String, Object>> getSearchCacheStats() {
+        return ResponseEntity.ok(adminService.getSearchCacheStats());
+    }
+
+    @PreAuthorize("hasAuthority('ADMIN')")
+    // Pre-serialized response snapshot statistics
+    @GetMapping("/cache/response-snapshots")
+    public ResponseEntity<Map<String, Object>> getResponseSnapshotStats() {
+        return ResponseEntity.ok(snapshots.stats());
+    }
+
+    @PreAuthorize("hasAuthority('ADMIN')")
+    // Seat hold counters (holds, in-memory rejections, database conflicts, releases)
+    @GetMapping("/seat-holds")
+    public ResponseEntity<Map<String, Object>> getSeatHoldStats() {
+        return ResponseEntity.ok(seatHolds.stats());
+    }
+
+    @PreAuthorize("hasAuthority('ADMIN')")
+    // Live seat map streams served by this node
+    @GetMapping("/seat-streams")
+    public ResponseEntity<Map<String, Object>> getSeatStreamStats() {
+        return ResponseEntity.ok(seatStreams.stats());
+    }
+
+    @PreAuthorize("hasAuthority('ADMIN')")
+    // Seat inventory updates (takes, sold out, retries after lock failures, time in the UPDATE)
+    @GetMapping("/inventory")
+    public ResponseEntity<Map<String, Object>> getInventoryStats() {
+        return ResponseEntity.ok(flightInventory.stats());
+    }
+
+    @PreAuthorize("hasAuthority('ADMIN')")
+    // Per-flight booking queues (goair.booking.mode=queued): waiting, batches, fallbacks, rejections
+    @GetMapping("/booking-queues")
+    public ResponseEntity<Map<String, Object>> getBookingQueueStats() {
+        return ResponseEntity.ok(bookingQueues.stats());
+    }
+
+    @PreAuthorize("hasAuthority('ADMIN')")
+    // Idempotency-Key store of booking and checkout: keys kept, executions, replays, mismatched bodies
+    @GetMapping("/idempotency")
+    public ResponseEntity<Map<String, Object>> getIdempotencyStats() {
+        return ResponseEntity.ok(idempotentRequests.stats());
+    }
+
+    @PreAuthorize("hasAuthority('ADMIN')")
+    // Releases lapsed seat holds now instead of waiting for the next sweep
+    @PostMapping("/seat-holds/release-expired")
+    public ResponseEntity<Map<String, Object>> releaseExpiredSeatHolds() {
+        return ResponseEntity.ok(Map.of("released", seatHolds.releaseExpired()));
+    }
+
    /* Experimental Code */
     @PreAuthorize("hasAuthority('ADMIN')")
     @GetMapping("/flight/layout/{flightNumber}")
@@ -0,0 +1,75 @@
+package com.go_air.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.go_air.model.dtos.FlightSummaryDTO;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Writes flight listings row by row as NDJSON or Server-Sent Events instead of one JSON array.
+ * <p>
+ * The source pushes rows as they come off the database cursor; each row is serialized and
+ * written straight to the response, so the first bytes leave early and nothing but the
+ * current row is held in memory. Output is flushed after the first row and then once per
+ * fetch batch.
+ */
+@Component
+public class FlightStreamResponses {
+
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+
+    private static final int FLUSH_EVERY = 500;
+
+    private static final byte[] NEWLINE = "\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SSE_FLIGHT = "event: flight\ndata: ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SSE_EVENT_END = "\n\n".getBytes(StandardCharsets.UTF_8);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /** SSE when the client accepts {@code text/event-stream}, NDJSON otherwise. */
+    public ResponseEntity<StreamingResponseBody> respond(String accept, Consumer<Consumer<FlightSummaryDTO>> source) {
+        boolean sse = accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE);
+
+        StreamingResponseBody body = out -> {
+            long[] count = {0};
+            try {
+                source.accept(flight -> write(out, flight, sse, ++count[0]));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            if (sse) {
+                out.write(("event: end\ndata: {\"count\":" + count[0] + "}\n\n").getBytes(StandardCharsets.UTF_8));
+            }
+            out.flush();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(sse ? MediaType.TEXT_EVENT_STREAM : MediaType.parseMediaType(NDJSON_VALUE))
+                .cacheControl(CacheControl.noCache())
+                .header("X-Accel-Buffering", "no") // keep reverse proxies from buffering the stream
+                .body(body);
+    }
+
+    private void write(OutputStream out, FlightSummaryDTO flight, boolean sse, long n) {
+        try {
+            if (sse) out.write(SSE_FLIGHT);
+            out.write(objectMapper.writeValueAsBytes(flight));
+            out.write(sse ? SSE_EVENT_END : NEWLINE);
+            if (n == 1 || n % FLUSH_EVERY == 0) out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
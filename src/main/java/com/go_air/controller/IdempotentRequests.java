@@ -0,0 +1,246 @@
+package com.go_air.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * {@code Idempotency-Key} support for endpoints that create things (bookings, checkout
+ * sessions), so a client retrying after a timeout does not create them twice.
+ * <p>
+ * The first request with a key runs and its response is kept for
+ * {@code goair.idempotency.ttl-minutes}; a retry with the same key and the same body gets
+ * that response again, marked {@code Idempotent-Replayed: true}, without touching the
+ * database or Stripe. A retry that arrives while the first is still running waits for it.
+ * Keys are scoped by request path (which holds the user id). Reusing a key with a
+ * different body is refused with 422.
+ * <p>
+ * A plain {@link Action} that fails with an exception keeps nothing, so the key may be used
+ * again; use it only where a failure commits nothing. A {@link ResumableAction} gets a
+ * state object created once per key, in which it records what it has committed (booked
+ * legs, a booking number). If it fails, the key and its state are kept and a retry with
+ * the same body runs it again with that state, continuing where the failed attempt
+ * stopped instead of repeating it. At most
+ * {@code goair.idempotency.max-entries} keys are kept, oldest dropped first. Keys live
+ * in this node's memory, so a retry that reaches another node runs again.
+ */
+@Component
+public class IdempotentRequests {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    /** A controller body that may throw the endpoint's checked exception. */
+    @FunctionalInterface
+    public interface Action<E extends Exception> {
+        ResponseEntity<Map<String, Object>> run() throws E;
+    }
+
+    /** A controller body that commits in steps, recording them in {@code state}. */
+    @FunctionalInterface
+    public interface ResumableAction<S, E extends Exception> {
+        ResponseEntity<Map<String, Object>> run(S state) throws E;
+    }
+
+    private static final class Entry {
+        final byte[] fingerprint;
+        final CompletableFuture<ResponseEntity<Map<String, Object>>> response = new CompletableFuture<>();
+        volatile long expiresAt;
+        // Of a ResumableAction, handed on to the attempt after a failed one
+        volatile Object state;
+
+        Entry(byte[] fingerprint, long expiresAt) {
+            this.fingerprint = fingerprint;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    @Value("${goair.idempotency.ttl-minutes:60}")
+    private long ttlMinutes;
+
+    @Value("${goair.idempotency.max-entries:100000}")
+    private int maxEntries;
+
+    @Value("${goair.idempotency.wait-ms:15000}")
+    private long waitMs;
+
+    @Value("${goair.idempotency.max-key-length:255}")
+    private int maxKeyLength;
+
+    // Request bodies in full: Booking drops its passengers when written with the annotations.
+    // Only compared within this process, so the modules on the classpath are all it needs
+    private final ObjectMapper fingerprintMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .configure(MapperFeature.USE_ANNOTATIONS, false)
+            .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)
+            .configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false)
+            .build();
+
+    // Insertion-ordered, so iteration starts at the oldest key
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder resumed = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder mismatched = new LongAdder();
+    private final LongAdder busy = new LongAdder();
+
+    /**
+     * Runs {@code action} once per {@code key} (none: every time) and request body, and
+     * answers repeats with the kept response.
+     */
+    public <E extends Exception> ResponseEntity<Map<String, Object>> respond(
+            String path, String key, Object requestBody, Action<E> action) throws E {
+        return respond(path, key, requestBody, () -> null, state -> action.run());
+    }
+
+    /**
+     * Like {@link #respond(String, String, Object, Action)}, for actions that may fail after
+     * committing part of their work: a retry continues with the state of the failed attempt.
+     */
+    @SuppressWarnings("unchecked")
+    public <S, E extends Exception> ResponseEntity<Map<String, Object>> respond(
+            String path, String key, Object requestBody, Supplier<S> newState, ResumableAction<S, E> action) throws E {
+        if (key == null || key.isBlank()) return action.run(newState.get());
+        if (key.length() > maxKeyLength) {
+            return failed(HttpStatus.BAD_REQUEST, HEADER + " must be at most " + maxKeyLength + " characters");
+        }
+
+        // Before the action runs: it may modify the request objects
+        byte[] fingerprint = fingerprint(requestBody);
+        Entry fresh = new Entry(fingerprint, expiry());
+        Entry existing = claim(path + " " + key, fresh);
+        if (existing != null) return replay(existing, fingerprint);
+
+        executed.increment();
+        if (fresh.state != null) {
+            resumed.increment();
+        } else {
+            fresh.state = newState.get();
+        }
+
+        ResponseEntity<Map<String, Object>> response;
+        try {
+            response = action.run((S) fresh.state);
+        } catch (Exception | Error e) {
+            // Without state nothing was committed; with it, the next attempt picks up from there
+            if (fresh.state == null) {
+                release(path + " " + key, fresh);
+            } else {
+                fresh.expiresAt = expiry();
+            }
+            fresh.response.completeExceptionally(e);
+            throw e;
+        }
+        fresh.expiresAt = expiry();
+        fresh.response.complete(response);
+        return response;
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("keys", entries.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlMinutes", ttlMinutes);
+        stats.put("executed", executed.sum());
+        stats.put("resumed", resumed.sum());
+        stats.put("replayed", replayed.sum());
+        stats.put("mismatched", mismatched.sum());
+        stats.put("busy", busy.sum());
+        return stats;
+    }
+
+    private ResponseEntity<Map<String, Object>> replay(Entry entry, byte[] fingerprint) {
+        if (!Arrays.equals(entry.fingerprint, fingerprint)) {
+            mismatched.increment();
+            return failed(HttpStatus.UNPROCESSABLE_ENTITY, HEADER + " was already used for a different request");
+        }
+
+        ResponseEntity<Map<String, Object>> response;
+        try {
+            response = entry.response.get(waitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            busy.increment();
+            return failed(HttpStatus.CONFLICT, "A request with this " + HEADER + " is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an idempotent request", e);
+        } catch (ExecutionException e) {
+            // The attempt this copy waited for failed; it reports the same failure
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            if (e.getCause() instanceof Error cause) throw cause;
+            throw new IllegalStateException(e.getCause());
+        }
+
+        replayed.increment();
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header("Idempotent-Replayed", "true")
+                .body(response.getBody());
+    }
+
+    // The entry already kept for the key, or null after storing the fresh one (with the
+    // state of a failed attempt at the same request, if any)
+    private synchronized Entry claim(String key, Entry fresh) {
+        long now = System.currentTimeMillis();
+        Iterator<Entry> oldest = entries.values().iterator();
+        while (oldest.hasNext()) {
+            Entry entry = oldest.next();
+            if (entries.size() < maxEntries && (entry.expiresAt > now || !entry.response.isDone())) break;
+            oldest.remove();
+        }
+
+        Entry existing = entries.get(key);
+        if (existing != null && existing.expiresAt > now) {
+            boolean resumable = existing.state != null && existing.response.isCompletedExceptionally()
+                    && Arrays.equals(existing.fingerprint, fresh.fingerprint);
+            if (!resumable) return existing;
+            fresh.state = existing.state;
+        }
+        entries.remove(key);
+        entries.put(key, fresh);
+        return null;
+    }
+
+    private synchronized void release(String key, Entry entry) {
+        entries.remove(key, entry);
+    }
+
+    private long expiry() {
+        return System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(ttlMinutes);
+    }
+
+    private byte[] fingerprint(Object body) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(fingerprintMapper.writeValueAsBytes(body));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not fingerprint request body", e);
+        }
+    }
+
+    private static ResponseEntity<Map<String, Object>> failed(HttpStatus status, String message) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", "FAILED");
+        body.put("message", message);
+        return ResponseEntity.status(status).body(body);
+    }
+}
@@ -3,12 +3,15 @@ package com.go_air.controller;
 import com.go_air.entity.Booking;
 import com.go_air.enums.BookingStatus;
 import com.go_air.enums.PaymentStatus;
+import com.go_air.service.BookingQueues;
+import com.go_air.service.SeatHolds;
 import com.go_air.service.UserService;
 import com.stripe.exception.SignatureVerificationException;
 import com.stripe.exception.StripeException;
 import com.stripe.model.Event;
 import com.stripe.model.PaymentIntent;
 import com.stripe.model.checkout.Session;
+import com.stripe.net.RequestOptions;
 import com.stripe.net.Webhook;
 import com.stripe.param.checkout.SessionCreateParams;
 import jakarta.servlet.http.HttpServletRequest;
@@ -23,9 +26,13 @@ import org.springframework.web.bind.annotation.*;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Scanner;
 
 @RestController
@@ -37,32 +44,59 @@ public class PaymentController {
  
     @Autowired
     private UserService userService;
+
+    @Autowired
+    private BookingQueues bookingQueues;
+
+    @Autowired
+    private IdempotentRequests idempotentRequests;
+
+    @Autowired
+    private SeatHolds seatHolds;
+
+    // What a checkout has committed so far, kept across retries with the same Idempotency-Key
+    private static final class Checkout {
+        String bookingNo;
+        final List<Booking> booked = new ArrayList<>();
+    }
     
     
     
+    // A retry with the same Idempotency-Key gets the first session back instead of new bookings and a new session;
+    // after a failure it books only the legs still missing and asks Stripe for the session under the same key
     @PostMapping("/create-checkout-session/{userId}")
     public ResponseEntity<Map<String, Object>> createCheckoutSession(
             @PathVariable String userId,
-            @RequestBody List<Booking> bookingRequests) throws StripeException {
+            @RequestBody List<Booking> bookingRequests,
+            @RequestHeader(value = IdempotentRequests.HEADER, required = false) String idempotencyKey) throws StripeException {
+
+        return idempotentRequests.respond("/api/payment/create-checkout-session/" + userId, idempotencyKey,
+                bookingRequests, Checkout::new, checkout -> checkout(userId, bookingRequests, checkout));
+    }
+
+    private ResponseEntity<Map<String, Object>> checkout(String userId, List<Booking> bookingRequests, Checkout checkout)
+            throws StripeException {
 
     	 if (bookingRequests == null || bookingRequests.isEmpty()) {
     	        return ResponseEntity.badRequest().body(Map.of("error", "No bookings provided"));
     	    }
 
-    	    // Generate ONE common booking number for all flights in this booking
-    	    String bookingNo = userService.generateUniqueBookingNumber();
+    	    // Generate ONE common booking number for all flights in this booking (once, if this is a retry)
+    	    if (checkout.bookingNo == null) checkout.bookingNo = userService.generateUniqueBookingNumber();
+    	    String bookingNo = checkout.bookingNo;
 
     	    long totalAmount = 0L;
     	    StringBuilder productNames = new StringBuilder();
 
-    	    // Save all bookings with SAME bookingNo
+    	    // FIX: Assign bookingNo BEFORE saving
     	    for (Booking bookingRequest : bookingRequests) {
-
-    	        // FIX: Assign bookingNo BEFORE saving
     	        bookingRequest.setBookingNo(bookingNo);
+    	    }
+
+    	    // Save all bookings with SAME bookingNo; legs booked by a failed attempt are not booked again
+    	    List<Booking> booked = bookingQueues.bookAll(userId, bookingRequests, checkout.booked);
 
-    	        // Save to DB
-    	        userService.bookFlight(userId, bookingRequest);
+    	    for (Booking bookingRequest : booked) {
 
     	        // Calculate total
     	        totalAmount += bookingRequest.getTotalAmount();
@@ -73,10 +107,19 @@ public class PaymentController {
 
     	    long amountInPaise = totalAmount * 100;
 
+    	    // The session closes before the first seat hold lapses, so nobody pays for a seat back on sale
+    	    LocalDateTime holdsUntil = booked.stream()
+    	            .map(Booking::getHoldExpiresAt)
+    	            .filter(Objects::nonNull)
+    	            .min(Comparator.naturalOrder())
+    	            .orElseThrow(() -> new IllegalStateException("Bookings " + bookingNo + " hold no seats"));
+    	    long sessionExpiresAt = seatHolds.checkoutExpiry(holdsUntil).atZone(ZoneId.systemDefault()).toEpochSecond();
+
         // 3️ Build Stripe session
         SessionCreateParams params = SessionCreateParams.builder()
                 .addPaymentMethodType(SessionCreateParams.PaymentMethodType.CARD)
                 .setMode(SessionCreateParams.Mode.PAYMENT)
+                .setExpiresAt(sessionExpiresAt)
                 .setSuccessUrl("http://localhost:5173/success?session_id={CHECKOUT_SESSION_ID}&userId=" + userId+"&bookingNo="+bookingNo)
                 .setCancelUrl("http://localhost:5173/cancel")
                 .putMetadata("flights", productNames.toString())
@@ -99,7 +142,12 @@ public class PaymentController {
                 )
                 .build();
 
-        Session session = Session.create(params);
+        // Stripe answers a repeat of this key with the session it already created, so a create
+        // that timed out after Stripe got it does not leave a second session for the same bookings
+        RequestOptions options = RequestOptions.builder()
+                .setIdempotencyKey("checkout-" + bookingNo)
+                .build();
+        Session session = Session.create(params, options);
 
         Map<String, Object> response = new HashMap<>();
         response.put("url", session.getUrl());
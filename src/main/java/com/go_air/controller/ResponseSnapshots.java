@@ -0,0 +1,172 @@
+package com.go_air.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Already-encoded JSON bodies of hot read endpoints, keyed by resource and version.
+ * <p>
+ * A snapshot is the response serialized once for one ETag (see
+ * {@link com.go_air.service.FlightVersions}); its gzip form is built the first time a
+ * client accepts it. As long as the version does not move, hits write the stored bytes
+ * straight to the response, with no object mapping and no compression. A newer version
+ * under the same key replaces the snapshot, and the least recently used key is dropped
+ * once the cache is full. Bodies above the size limit are served but not kept.
+ */
+@Component
+public class ResponseSnapshots {
+
+    private static final class Snapshot {
+        final String etag;
+        final byte[] json;
+        volatile byte[] gzip;
+
+        Snapshot(String etag, byte[] json) {
+            this.etag = etag;
+            this.json = json;
+        }
+    }
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${goair.response-snapshots.enabled:true}")
+    private boolean enabled;
+
+    @Value("${goair.response-snapshots.max-entries:2000}")
+    private int maxEntries;
+
+    @Value("${goair.response-snapshots.max-body-bytes:1048576}")
+    private int maxBodyBytes;
+
+    @Value("${goair.response-snapshots.min-gzip-bytes:1024}")
+    private int minGzipBytes;
+
+    // Access-ordered, so iteration starts at the least recently used key
+    private final LinkedHashMap<String, Snapshot> snapshots = new LinkedHashMap<>(256, 0.75f, true);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder gzipBuilds = new LongAdder();
+
+    /**
+     * JSON response for {@code key} at version {@code etag}: the stored bytes when the
+     * snapshot is current, otherwise {@code body} serialized (and kept). Gzip is used when
+     * the request accepts it and the body is large enough to gain from it.
+     */
+    public ResponseEntity<byte[]> respond(WebRequest request, String key, String etag, Supplier<?> body) {
+        Snapshot snapshot = enabled ? lookup(key, etag) : null;
+        if (snapshot != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            snapshot = new Snapshot(etag, serialize(body.get()));
+            if (enabled && snapshot.json.length <= maxBodyBytes) store(key, snapshot);
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(etag)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        if (snapshot.json.length >= minGzipBytes && acceptsGzip(request)) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(gzipOf(snapshot));
+        }
+        return response.body(snapshot.json);
+    }
+
+    /** Key of a resource whose body depends on the request parameters, independent of their order. */
+    public static String keyOf(String resource, WebRequest request) {
+        StringBuilder key = new StringBuilder(resource).append('?');
+        new TreeMap<>(request.getParameterMap()).forEach((name, values) ->
+                key.append(name).append('=').append(String.join(",", values)).append('&'));
+        return key.toString();
+    }
+
+    public synchronized Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        long bytes = 0;
+        for (Snapshot s : snapshots.values()) {
+            bytes += s.json.length + (s.gzip != null ? s.gzip.length : 0);
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("size", snapshots.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("bytes", bytes);
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.sum());
+        stats.put("hitRatio", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+        stats.put("gzipBuilds", gzipBuilds.sum());
+        return stats;
+    }
+
+    private synchronized Snapshot lookup(String key, String etag) {
+        Snapshot snapshot = snapshots.get(key);
+        return (snapshot != null && snapshot.etag.equals(etag)) ? snapshot : null;
+    }
+
+    private synchronized void store(String key, Snapshot snapshot) {
+        snapshots.put(key, snapshot);
+        Iterator<String> eldest = snapshots.keySet().iterator();
+        while (snapshots.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    // Built once per snapshot; a race only compresses the same bytes twice
+    private byte[] gzipOf(Snapshot snapshot) {
+        byte[] gzip = snapshot.gzip;
+        if (gzip == null) {
+            gzip = gzip(snapshot.json);
+            snapshot.gzip = gzip;
+            gzipBuilds.increment();
+        }
+        return gzip;
+    }
+
+    private byte[] serialize(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize response body", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, bytes.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static boolean acceptsGzip(WebRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return accept != null && accept.toLowerCase().contains("gzip");
+    }
+}
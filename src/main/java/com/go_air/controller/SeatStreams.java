@@ -0,0 +1,437 @@
+package com.go_air.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.go_air.enums.SeatStatus;
+import com.go_air.event.FlightChangedEvent;
+import com.go_air.event.SeatsChangedEvent;
+import com.go_air.model.dtos.FlightSummaryDTO;
+import com.go_air.service.SeatMap;
+import com.go_air.service.SeatMaps;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live seat maps over Server-Sent Events: a {@code snapshot} event with every seat's
+ * status code (see {@link SeatMap#statusCodes()}), then a {@code seats} event with only the
+ * seats whose status changed, for every committed {@link SeatsChangedEvent} of the flight.
+ * <p>
+ * Each event is serialized once per flight on one of a few single-threaded fan-out stripes
+ * chosen by flight, never on the committing request thread, so each flight's events keep
+ * their order. Stripes neither write to sockets nor read the database: they put events
+ * into each subscriber's outbox, which a pool of writer threads drains one subscriber at a
+ * time, and seat maps missing from memory are loaded on a separate loader pool. A client
+ * that falls {@code goair.seat-stream.max-queued-events} events behind is dropped instead
+ * of holding anyone up; like any client that reconnects, it starts over with a snapshot.
+ * <p>
+ * A subscriber gets its snapshot on the flight's stripe, from the map {@link SeatMaps}
+ * keeps up to date, and no deltas before it, so no change falls between the snapshot and
+ * the first delta. Open connections hold no thread. Regenerated seats or a changed layout
+ * send a new snapshot; a deleted flight ends its streams.
+ */
+@Component
+public class SeatStreams {
+
+    // Loads of a map that keep overlapping changes of the flight before its waiting subscribers are closed
+    private static final int MAX_SNAPSHOT_LOADS = 3;
+
+    @Autowired
+    private SeatMaps seatMaps;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${goair.seat-stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${goair.seat-stream.max-subscribers:10000}")
+    private int maxSubscribers;
+
+    @Value("${goair.seat-stream.fanout-threads:4}")
+    private int fanoutThreads;
+
+    @Value("${goair.seat-stream.writer-threads:8}")
+    private int writerThreads;
+
+    @Value("${goair.seat-stream.loader-threads:2}")
+    private int loaderThreads;
+
+    @Value("${goair.seat-stream.max-queued-events:32}")
+    private int maxQueuedEvents;
+
+    @Value("${goair.seat-stream.load-timeout-ms:5000}")
+    private long loadTimeoutMs;
+
+    private final Map<String, Set<Subscriber>> byFlight = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    private final LongAdder snapshots = new LongAdder();
+    private final LongAdder deltas = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder slow = new LongAdder();
+
+    private ExecutorService[] stripes;
+    private ExecutorService writers;
+    private ExecutorService loader;
+
+    /** One open stream; its outbox is written by at most one writer thread at a time. */
+    private final class Subscriber {
+        final String flightNumber;
+        final SseEmitter emitter;
+        final Queue<Set<DataWithMediaType>> outbox = new ArrayDeque<>();
+        boolean draining;
+        boolean closed;
+        // Complete the stream once the outbox is written
+        boolean finishing;
+        // Only touched on the flight's stripe: deltas are skipped until the snapshot is queued
+        boolean hasSnapshot;
+
+        Subscriber(String flightNumber, SseEmitter emitter) {
+            this.flightNumber = flightNumber;
+            this.emitter = emitter;
+        }
+
+        void offer(Set<DataWithMediaType> data) {
+            boolean schedule = false;
+            boolean overflow = false;
+            synchronized (this) {
+                if (closed || finishing) return;
+                if (outbox.size() < maxQueuedEvents) {
+                    outbox.add(data);
+                    schedule = !draining;
+                    draining = true;
+                } else {
+                    overflow = true;
+                    closed = true;
+                    outbox.clear();
+                }
+            }
+            if (schedule) writers.execute(this::drain);
+            if (overflow) {
+                slow.increment();
+                close(null);
+            }
+        }
+
+        // Ends the stream after the events already queued
+        void finish() {
+            boolean completeNow;
+            synchronized (this) {
+                if (closed) return;
+                finishing = true;
+                completeNow = !draining;
+                if (completeNow) closed = true;
+            }
+            if (completeNow) {
+                close(null);
+            } else {
+                unsubscribe(this);
+            }
+        }
+
+        void drain() {
+            while (true) {
+                Set<DataWithMediaType> data;
+                boolean finished = false;
+                synchronized (this) {
+                    data = closed ? null : outbox.poll();
+                    if (data == null) {
+                        draining = false;
+                        if (finishing && !closed) {
+                            closed = true;
+                            finished = true;
+                        }
+                    }
+                }
+                if (data == null) {
+                    if (finished) close(null);
+                    return;
+                }
+                try {
+                    emitter.send(data);
+                    writes.increment();
+                } catch (IOException | IllegalStateException e) {
+                    dropped.increment();
+                    synchronized (this) {
+                        closed = true;
+                        outbox.clear();
+                    }
+                    close(e);
+                }
+            }
+        }
+
+        void close(Throwable error) {
+            unsubscribe(this);
+            if (error != null) {
+                emitter.completeWithError(error);
+            } else {
+                emitter.complete();
+            }
+        }
+    }
+
+    @PostConstruct
+    void startPools() {
+        stripes = new ExecutorService[Math.max(1, fanoutThreads)];
+        for (int i = 0; i < stripes.length; i++) stripes[i] = daemonPool("seat-stream-" + i, 1);
+        writers = daemonPool("seat-stream-writer-", Math.max(1, writerThreads));
+        loader = daemonPool("seat-stream-loader-", Math.max(1, loaderThreads));
+    }
+
+    /** A stream for the flight (see {@link #hasSeats}), or null when the node is at its subscriber limit. */
+    public SseEmitter subscribe(String flightNumber) {
+        if (subscribers.incrementAndGet() > maxSubscribers) {
+            subscribers.decrementAndGet();
+            return null;
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(flightNumber, emitter);
+        Runnable remove = () -> unsubscribe(subscriber);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+
+        stripe(flightNumber).execute(() -> {
+            byFlight.computeIfAbsent(flightNumber, f -> ConcurrentHashMap.newKeySet()).add(subscriber);
+            sendSnapshots(flightNumber, 0);
+        });
+        return emitter;
+    }
+
+    /**
+     * Whether the flight has a seat map, loading it if needed. The load runs on the loader
+     * pool: a query on the request thread would tie a pooled connection to the request's
+     * open EntityManager for as long as the stream stays open.
+     */
+    public boolean hasSeats(String flightNumber) {
+        if (seatMaps.peek(flightNumber) != null) return true;
+        try {
+            return CompletableFuture.supplyAsync(() -> seatMaps.get(flightNumber) != null, loader)
+                    .get(loadTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Seat map of flight " + flightNumber + " is not available right now, please try again");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while loading the seat map of flight " + flightNumber);
+        }
+    }
+
+    // After SeatMaps (highest precedence), which this reads for snapshots
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onSeatsChanged(SeatsChangedEvent event) {
+        String flightNumber = event.flightNumber();
+        if (!byFlight.containsKey(flightNumber)) return;
+
+        stripe(flightNumber).execute(() -> {
+            if (event.statuses() == null) {
+                resnapshot(flightNumber);
+            } else {
+                Set<DataWithMediaType> data = delta(flightNumber, event.statuses());
+                deltas.increment();
+                for (Subscriber subscriber : subscribers(flightNumber)) {
+                    if (subscriber.hasSnapshot) subscriber.offer(data);
+                }
+            }
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onFlightChanged(FlightChangedEvent event) {
+        FlightSummaryDTO previous = event.previous();
+        FlightSummaryDTO current = event.current();
+        if (previous == null || !byFlight.containsKey(previous.getFlightNumber())) return;
+
+        String flightNumber = previous.getFlightNumber();
+        boolean ended = current == null || !Objects.equals(flightNumber, current.getFlightNumber());
+        boolean layoutChanged = !ended && previous.getAircraftSize() != current.getAircraftSize();
+        if (!ended && !layoutChanged) return;
+
+        stripe(flightNumber).execute(() -> {
+            if (ended) {
+                Set<DataWithMediaType> end = SseEmitter.event().name("end").data(json(Map.of("flightNumber", flightNumber))).build();
+                for (Subscriber subscriber : subscribers(flightNumber)) {
+                    subscriber.offer(end);
+                    subscriber.finish();
+                }
+            } else {
+                resnapshot(flightNumber);
+            }
+        });
+    }
+
+    // Comment lines keep idle connections open through proxies and reveal dead ones
+    @Scheduled(fixedDelayString = "${goair.seat-stream.heartbeat-ms:25000}")
+    public void heartbeat() {
+        Set<DataWithMediaType> ping = SseEmitter.event().comment("ping").build();
+        for (String flightNumber : byFlight.keySet()) {
+            stripe(flightNumber).execute(() -> subscribers(flightNumber).forEach(subscriber -> subscriber.offer(ping)));
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("subscribers", subscribers.get());
+        stats.put("maxSubscribers", maxSubscribers);
+        stats.put("flights", byFlight.size());
+        stats.put("snapshots", snapshots.sum());
+        stats.put("deltas", deltas.sum());
+        stats.put("writes", writes.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("droppedSlow", slow.sum());
+        stats.put("maxQueuedEvents", maxQueuedEvents);
+        return stats;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        for (ExecutorService stripe : stripes) stripe.shutdownNow();
+        writers.shutdownNow();
+        loader.shutdownNow();
+        byFlight.values().forEach(flight -> flight.forEach(subscriber -> subscriber.emitter.complete()));
+    }
+
+    // On the flight's stripe: every subscriber waits for a new snapshot, deltas until then are in it
+    private void resnapshot(String flightNumber) {
+        for (Subscriber subscriber : subscribers(flightNumber)) subscriber.hasSnapshot = false;
+        sendSnapshots(flightNumber, 0);
+    }
+
+    /**
+     * On the flight's stripe: queues a snapshot for every subscriber still waiting for one,
+     * from the map kept in memory. A map that has to be read first is loaded on the loader
+     * pool and this runs again; a load that overlapped a change is not kept, so after a few
+     * of those the waiting subscribers are closed and left to reconnect.
+     */
+    private void sendSnapshots(String flightNumber, int loads) {
+        if (subscribers(flightNumber).stream().allMatch(subscriber -> subscriber.hasSnapshot)) return;
+
+        SeatMap seatMap = seatMaps.peek(flightNumber);
+        if (seatMap != null) {
+            Set<DataWithMediaType> snapshot = snapshot(flightNumber, seatMap);
+            for (Subscriber subscriber : subscribers(flightNumber)) {
+                if (subscriber.hasSnapshot) continue;
+                subscriber.hasSnapshot = true;
+                subscriber.offer(snapshot);
+            }
+            return;
+        }
+
+        if (loads >= MAX_SNAPSHOT_LOADS) {
+            closeWaiting(flightNumber);
+            return;
+        }
+        loader.execute(() -> {
+            boolean found;
+            try {
+                found = seatMaps.get(flightNumber) != null;
+            } catch (RuntimeException e) {
+                found = false;
+            }
+            boolean exists = found;
+            stripe(flightNumber).execute(() -> {
+                if (exists) {
+                    sendSnapshots(flightNumber, loads + 1);
+                } else {
+                    closeWaiting(flightNumber);
+                }
+            });
+        });
+    }
+
+    private void closeWaiting(String flightNumber) {
+        for (Subscriber subscriber : subscribers(flightNumber)) {
+            if (!subscriber.hasSnapshot) subscriber.close(null);
+        }
+    }
+
+    private Set<DataWithMediaType> snapshot(String flightNumber, SeatMap seatMap) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("flightNumber", flightNumber);
+        body.put("rows", seatMap.getRows());
+        body.put("columns", seatMap.getColumns());
+        body.put("seats", seatMap.statusCodes());
+        snapshots.increment();
+        return SseEmitter.event().name("snapshot").data(json(body)).build();
+    }
+
+    private Set<DataWithMediaType> delta(String flightNumber, Map<String, SeatStatus> statuses) {
+        Map<String, String> seats = new TreeMap<>();
+        statuses.forEach((seat, status) -> seats.put(seat, String.valueOf(SeatMap.code(status))));
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("flightNumber", flightNumber);
+        body.put("seats", seats);
+        return SseEmitter.event().name("seats").data(json(body)).build();
+    }
+
+    private List<Subscriber> subscribers(String flightNumber) {
+        return List.copyOf(byFlight.getOrDefault(flightNumber, Set.of()));
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        Set<Subscriber> flight = byFlight.get(subscriber.flightNumber);
+        if (flight != null && flight.remove(subscriber)) {
+            subscribers.decrementAndGet();
+            if (flight.isEmpty()) byFlight.remove(subscriber.flightNumber, flight);
+        }
+    }
+
+    private ExecutorService stripe(String flightNumber) {
+        return stripes[Math.floorMod(flightNumber.hashCode(), stripes.length)];
+    }
+
+    private static ExecutorService daemonPool(String name, int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, threads == 1 ? name : name + count.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private String json(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize seat stream event", e);
+        }
+    }
+}
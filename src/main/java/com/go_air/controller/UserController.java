@@ -9,17 +9,26 @@ import com.go_air.enums.AircraftSize;
 import com.go_air.enums.BookingType;
 import com.go_air.enums.DepartureType;
 import com.go_air.enums.SpecialFareType;
+import com.go_air.enums.TravelClass;
 import com.go_air.enums.TripType;
 import com.go_air.model.dtos.BookingResponseDTO;
+import com.go_air.model.dtos.FlightSummaryDTO;
 import com.go_air.model.dtos.PassengerTicketDTO;
 import com.go_air.service.AdminService;
+import com.go_air.service.BookingQueues;
+import com.go_air.service.FlightVersions;
 import com.go_air.service.UserService;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -34,21 +43,40 @@ public class UserController {
 
     @Autowired
     private UserService userService;
+
+    @Autowired
+    private FlightStreamResponses flightStreams;
+
+    @Autowired
+    private FlightVersions flightVersions;
+
+    @Autowired
+    private ResponseSnapshots snapshots;
+
+    @Autowired
+    private SeatStreams seatStreams;
+
+    @Autowired
+    private BookingQueues bookingQueues;
+
+    @Autowired
+    private IdempotentRequests idempotentRequests;
     
     private static final Logger log = LoggerFactory.getLogger(AdminService.class);
    
     @GetMapping("/airport-suggestions")
     public ResponseEntity<?> getAirportSuggestions(
             @RequestParam String type,
-            @RequestParam String query) {
+            @RequestParam String query,
+            @RequestParam(defaultValue = "10") int limit) {
     	log.info("query : "+query+" type : "+type);
-        return ResponseEntity.ok(userService.getAirportSuggestions(type, query));
+        return ResponseEntity.ok(userService.getAirportSuggestions(type, query, limit));
     }
 
     
     @GetMapping("/flights/search")
     @ValidateFlightData
-    public ResponseEntity<?> searchFlights(
+    public ResponseEntity<byte[]> searchFlights(
             @RequestParam TripType tripType,
             @RequestParam(required = false) List<String> airlines,
             @RequestParam String sourceAirports,       // comma-separated
@@ -62,72 +90,145 @@ public class UserController {
             @RequestParam(required = false) Integer maxPrice,
             @RequestParam(required = false) Integer passengers,
             @RequestParam(required = false) AircraftSize aircraftSize,
-            @RequestParam(required = false) SpecialFareType specialFareType //enum param
+            @RequestParam(required = false) SpecialFareType specialFareType, //enum param
+            @RequestParam(required = false) Integer maxConnections, // CONNECTING only, 0..2
+            @RequestParam(defaultValue = "false") boolean facets,
+            @RequestParam(defaultValue = "1000") int priceBucketSize,
+            WebRequest request
     ) {
-
-        // Parse comma-separated airport and date values
-        List<String> sources = Arrays.stream(sourceAirports.split(","))
-                .map(String::trim)
-                .filter(s -> !s.isEmpty())
-                .toList();
-
-        List<String> destinations = Arrays.stream(destinationAirports.split(","))
-                .map(String::trim)
-                .filter(s -> !s.isEmpty())
-                .toList();
-
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-
-        List<LocalDate> dates = Arrays.stream(departureDates.split(","))
-                .map(String::trim)
-                .filter(s -> !s.isEmpty())
-                .map(s -> LocalDate.parse(s, formatter))
-                .toList();
+        // Results can change with any flight, so the tag is the global flight version
+        String etag = flightVersions.searchTag();
+        if (request.checkNotModified(etag)) return null;
+
+        // Hot searches are written from the stored bytes while the version holds
+        return snapshots.respond(request, ResponseSnapshots.keyOf("flights/search", request), etag, () -> {
+            // Parse comma-separated airport and date values
+            List<String> sources = Arrays.stream(sourceAirports.split(","))
+                    .map(String::trim)
+                    .filter(s -> !s.isEmpty())
+                    .toList();
+
+            List<String> destinations = Arrays.stream(destinationAirports.split(","))
+                    .map(String::trim)
+                    .filter(s -> !s.isEmpty())
+                    .toList();
+
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+            List<LocalDate> dates = Arrays.stream(departureDates.split(","))
+                    .map(String::trim)
+                    .filter(s -> !s.isEmpty())
+                    .map(s -> LocalDate.parse(s, formatter))
+                    .toList();
         
-        LocalDate retDate = null;
-        if (returnDate != null && !returnDate.isEmpty()) {
-            retDate = LocalDate.parse(returnDate, DateTimeFormatter.ISO_DATE);           
-        }
+            LocalDate retDate = null;
+            if (returnDate != null && !returnDate.isEmpty()) {
+                retDate = LocalDate.parse(returnDate, DateTimeFormatter.ISO_DATE);           
+            }
       
-     // Clean airline list
-        List<String> validAirlines = (airlines != null)
-                ? airlines.stream().map(String::trim).filter(s -> !s.isEmpty()).toList()
-                : List.of();
+         // Clean airline list
+            List<String> validAirlines = (airlines != null)
+                    ? airlines.stream().map(String::trim).filter(s -> !s.isEmpty()).toList()
+                    : List.of();
+
+            // Connecting itineraries come from the route graph and have their own shape
+            if (tripType == TripType.CONNECTING) {
+                return userService.searchConnectingItineraries(
+                        validAirlines,
+                        sources,
+                        destinations,
+                        dates,
+                        maxConnections,
+                        stop,
+                        bookingType,
+                        departureType,
+                        minPrice,
+                        maxPrice,
+                        passengers,
+                        aircraftSize,
+                        specialFareType
+                );
+            }
 
-        // Call service method
-        Map<String, List<Flights>> flights = userService.searchFlightsByTripType(
-                tripType,
-                validAirlines,
-                sources,
-                destinations,
-                dates,
-                retDate,
-                stop,
-                bookingType,
-                departureType,
-                minPrice,
-                maxPrice,
-                passengers,
-                aircraftSize,
-                specialFareType
-        );
+            // Call service method
+            Map<String, List<FlightSummaryDTO>> flights = userService.searchFlightsByTripType(
+                    tripType,
+                    validAirlines,
+                    sources,
+                    destinations,
+                    dates,
+                    retDate,
+                    stop,
+                    bookingType,
+                    departureType,
+                    minPrice,
+                    maxPrice,
+                    passengers,
+                    aircraftSize,
+                    specialFareType
+            );
+
+            if (!facets) {
+                return flights;
+            }
 
-        return ResponseEntity.ok(flights);
+            // Facets wrap the legs, the plain shape stays as it was for existing clients
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("flights", flights);
+            response.put("facets", userService.getFacets(flights, priceBucketSize));
+            return response;
+        });
+    }
+
+    // Fare calendar: lowest fare per day for a route, per travel class
+    @GetMapping("/flights/fare-calendar")
+    public ResponseEntity<Map<LocalDate, Map<TravelClass, Integer>>> getFareCalendar(
+            @RequestParam String sourceAirport,
+            @RequestParam String destinationAirport,
+            @RequestParam(value = "fromDate", required = false) String fromDateStr,
+            @RequestParam(defaultValue = "30") int days,
+            @RequestParam(required = false) TravelClass travelClass) {
+        LocalDate fromDate = null;
+        if (fromDateStr != null && !fromDateStr.trim().isEmpty()) {
+            fromDate = LocalDate.parse(fromDateStr.trim());
+        }
+        return ResponseEntity.ok(userService.getFareCalendar(sourceAirport, destinationAirport, fromDate, days, travelClass));
     }
 
     /// Get Seats by flight No
     @GetMapping("/flight/seats/{flightNumber}")
-    public ResponseEntity<List<Seat>> getSeatsByFlightNo(@PathVariable String flightNumber) {
+    public ResponseEntity<byte[]> getSeatsByFlightNo(@PathVariable String flightNumber, WebRequest request) {
         log.info("Flightno =======================>>>> {}", flightNumber);
-        List<Seat> seats = userService.getSeatsByFlightNumber(flightNumber);
-        return ResponseEntity.ok(seats);
+        // Tag first, see FlightVersions; an unchanged seat map answers 304 after one version lookup
+        FlightVersions.FlightVersion version = flightVersions.flightVersion(flightNumber);
+        String etag = version.etag();
+        if (request.checkNotModified(etag)) return null;
+
+        return snapshots.respond(request, "seats/" + flightNumber, etag,
+                () -> userService.getSeatsByFlightNumber(flightNumber, version.version()));
+    }
+
+    // Live seat map (text/event-stream): a snapshot, then only the seats that change
+    @GetMapping(value = "/flight/seats/{flightNumber}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamSeatsByFlightNo(@PathVariable String flightNumber) {
+        if (!seatStreams.hasSeats(flightNumber)) {
+            return ResponseEntity.notFound().build();
+        }
+        SseEmitter emitter = seatStreams.subscribe(flightNumber);
+        if (emitter == null) {
+            // This node already serves its maximum of streams
+            return ResponseEntity.status(503).build();
+        }
+        return ResponseEntity.ok()
+                .header("X-Accel-Buffering", "no") // keep reverse proxies from buffering the stream
+                .body(emitter);
     }
 
     
     // Search Flight
     @GetMapping("/flights")
     @ValidateFlightData
-    public ResponseEntity<List<Flights>> getFlightsByFilters(
+    public ResponseEntity<List<FlightSummaryDTO>> getFlightsByFilters(
     		@RequestParam(required = false) List<String> airlines,
             @RequestParam(required = false) String sourceAirport,
             @RequestParam(required = false) String destinationAirport,
@@ -151,7 +252,7 @@ public class UserController {
                 : List.of();
 
         
-        List<Flights> flights = userService.getFlightsByFilters(
+        List<FlightSummaryDTO> flights = userService.getFlightsByFilters(
         		validAirlines, sourceAirport, destinationAirport, departureDate, stop,
                 bookingType, departureType, minPrice, maxPrice, passengers,aircraftSize
         );
@@ -159,18 +260,51 @@ public class UserController {
     }
 
 
-    // For Booking
+    // Search Flight streamed row by row (Accept: application/x-ndjson or text/event-stream)
+    @GetMapping(value = "/flights", produces = { FlightStreamResponses.NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE })
+    @ValidateFlightData
+    public ResponseEntity<StreamingResponseBody> streamFlightsByFilters(
+    		@RequestParam(required = false) List<String> airlines,
+            @RequestParam(required = false) String sourceAirport,
+            @RequestParam(required = false) String destinationAirport,
+            @RequestParam(required = false) String departureDateStr,
+            @RequestParam(required = false) Integer stop,
+            @RequestParam(required = false) BookingType bookingType,
+            @RequestParam(required = false) DepartureType departureType,
+            @RequestParam(required = false) Integer minPrice,
+            @RequestParam(required = false) Integer maxPrice,
+            @RequestParam(required = false) Integer passengers,
+            @RequestParam(required = false) AircraftSize aircraftSize,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept
+    ) {
+        LocalDate departureDate = (departureDateStr != null && !departureDateStr.trim().isEmpty())
+                ? LocalDate.parse(departureDateStr.trim())
+                : null;
+
+        return flightStreams.respond(accept, sink -> userService.streamFlightsByFilters(
+                airlines, sourceAirport, destinationAirport, departureDate, stop,
+                bookingType, departureType, minPrice, maxPrice, passengers, aircraftSize, sink
+        ));
+    }
+
+    // For Booking; a retry with the same Idempotency-Key gets the first response back,
+    // or books only the legs a failed first attempt did not get to
     @PostMapping("/book/{userId}")
     @ValidateFlightData
     public ResponseEntity<Map<String, Object>> bookFlights(
             @PathVariable String userId,
-            @RequestBody List<Booking> bookingRequests) {
+            @RequestBody List<Booking> bookingRequests,
+            @RequestHeader(value = IdempotentRequests.HEADER, required = false) String idempotencyKey) {
+
+        return idempotentRequests.respond("/user/book/" + userId, idempotencyKey, bookingRequests,
+                () -> new ArrayList<Booking>(), booked -> book(userId, bookingRequests, booked));
+    }
 
+    private ResponseEntity<Map<String, Object>> book(String userId, List<Booking> bookingRequests, List<Booking> booked) {
         Map<String, Object> response = new HashMap<>();
         List<Long> bookingIds = new ArrayList<>();
 
-        for (Booking bookingRequest : bookingRequests) {
-            Booking booking = userService.bookFlight(userId, bookingRequest);
+        for (Booking booking : bookingQueues.bookAll(userId, bookingRequests, booked)) {
             bookingIds.add(booking.getId());
         }
 
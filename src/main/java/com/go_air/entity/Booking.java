@@ -78,6 +78,11 @@ public class Booking {
     
     @Enumerated(EnumType.STRING)
     private JourneyStatus journeyStatus;
+
+    // When the seats held by bookFlight go back unless paid; not stored
+    @Transient
+    @JsonIgnore
+    private LocalDateTime holdExpiresAt;
     
    // One booking can have multiple passengers
     @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
@@ -4,11 +4,13 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import com.go_air.enums.AircraftSize;
 import com.go_air.enums.BookingType;
 import com.go_air.enums.DepartureType;
 import com.go_air.enums.JourneyStatus;
+import com.go_air.model.dtos.FlightSummaryDTO;
 
 import jakarta.persistence.*;
 import lombok.*;
@@ -20,11 +22,73 @@ import lombok.*;
 @Builder
 @ToString(exclude = "seats")
 @Entity
+@SqlResultSetMapping(
+    name = "FlightSummaryWithLegIndex",
+    classes = @ConstructorResult(targetClass = FlightSummaryDTO.class, columns = {
+        @ColumnResult(name = "id", type = Long.class),
+        @ColumnResult(name = "flight_number", type = String.class),
+        @ColumnResult(name = "airline", type = String.class),
+        @ColumnResult(name = "source_airport", type = String.class),
+        @ColumnResult(name = "destination_airport", type = String.class),
+        @ColumnResult(name = "stop", type = Integer.class),
+        @ColumnResult(name = "destination_stop", type = String.class),
+        @ColumnResult(name = "booking_type", type = BookingType.class),
+        @ColumnResult(name = "cancellation_charges", type = Integer.class),
+        @ColumnResult(name = "departure_type", type = DepartureType.class),
+        @ColumnResult(name = "aircraft_size", type = AircraftSize.class),
+        @ColumnResult(name = "boarding_time", type = LocalTime.class),
+        @ColumnResult(name = "departure_date", type = LocalDate.class),
+        @ColumnResult(name = "departure_time", type = LocalTime.class),
+        @ColumnResult(name = "arrival_date", type = LocalDate.class),
+        @ColumnResult(name = "arrival_time", type = LocalTime.class),
+        @ColumnResult(name = "duration_minutes", type = Integer.class),
+        @ColumnResult(name = "price", type = Integer.class),
+        @ColumnResult(name = "available_seats", type = Integer.class),
+        @ColumnResult(name = "journey_status", type = JourneyStatus.class)
+    }),
+    columns = @ColumnResult(name = "leg_index", type = Integer.class)
+)
+// All legs of a multi-leg search in one statement: the (source, destination, date)
+// arrays are unnested into rows and every matching flight comes back tagged with its leg.
+// Lists are bound as arrays, so a value containing a comma stays one element.
+// Optional filters are cast explicitly because a named query binds nulls without a type.
+// They match like the COALESCE filters of FlightRepository.findFlightsByFilters (a NULL
+// column never matches), since both paths fill the same search cache entries.
+@NamedNativeQuery(
+    name = "Flights.findFlightsForLegs",
+    resultSetMapping = "FlightSummaryWithLegIndex",
+    query = """
+        SELECT f.*, CAST(legs.leg_index - 1 AS integer) AS leg_index
+        FROM unnest(
+                 CAST(:sources AS text[]),
+                 CAST(:destinations AS text[]),
+                 CAST(:dates AS date[])
+             ) WITH ORDINALITY AS legs(src, dest, dep_date, leg_index)
+        JOIN flights f
+          ON f.source_airport = legs.src
+         AND f.destination_airport = legs.dest
+         AND f.departure_date = legs.dep_date
+        WHERE
+            (cardinality(CAST(:airlines AS text[])) = 0 OR f.airline = ANY(CAST(:airlines AS text[]))) AND
+            f.stop = COALESCE(CAST(:stop AS integer), f.stop) AND
+            f.booking_type = COALESCE(CAST(:bookingType AS text), f.booking_type) AND
+            f.departure_type = COALESCE(CAST(:departureType AS text), f.departure_type) AND
+            f.price >= COALESCE(CAST(:minPrice AS integer), f.price) AND
+            f.price <= COALESCE(CAST(:maxPrice AS integer), f.price) AND
+            f.available_seats >= COALESCE(CAST(:passengers AS integer), f.available_seats) AND
+            f.aircraft_size = COALESCE(CAST(:aircraftSize AS text), f.aircraft_size)
+        ORDER BY legs.leg_index, f.price
+        """
+)
 @Table(
     name = "flights",
     uniqueConstraints = @UniqueConstraint(
         columnNames = {"flightNumber"}
-    )
+    ),
+    indexes = {
+        @Index(name = "idx_flights_route_date", columnList = "source_airport, destination_airport, departure_date"),
+        @Index(name = "idx_flights_price_id", columnList = "price, id")
+    }
 )
 public class Flights {
 
@@ -76,6 +140,12 @@ public class Flights {
     private Integer price;
     
     private int availableSeats;
+
+    // Moves with every committed change of the row or its seats, in the same statement (see FlightVersions);
+    // never written through JPA, so a stale entity cannot set it back
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0", insertable = false, updatable = false)
+    @JsonIgnore
+    private long version;
     
     @Enumerated(EnumType.STRING)
     @Column(name = "journey_status", nullable = false, columnDefinition = "varchar(255) default 'SCHEDULED'")
@@ -10,6 +10,8 @@ import com.go_air.enums.TravelClass;
 import jakarta.persistence.*;
 import lombok.*;
 
+import java.time.LocalDateTime;
+
 @Getter
 @Setter
 @NoArgsConstructor
@@ -18,7 +20,8 @@ import lombok.*;
 @ToString(exclude = {"user"})
 @Entity
 @Table(
-    name = "passenger"
+    name = "passenger",
+    indexes = @Index(name = "idx_passenger_passport_arrival", columnList = "passport_number, arrival_at")
 )
 public class Passenger {
 
@@ -51,6 +54,13 @@ public class Passenger {
     
     private String passportNumber;
 
+    // Travel window of the booking, copied here so passport overlap checks are one index range scan
+    @JsonIgnore
+    private LocalDateTime departureAt;
+
+    @JsonIgnore
+    private LocalDateTime arrivalAt;
+
     @ManyToOne
     @JoinColumn(name = "user_id")
     @JsonIgnore
@@ -1,7 +1,10 @@
 package com.go_air.entity;
 
 
+import java.time.LocalDateTime;
+
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.go_air.enums.SeatPosition;
 import com.go_air.enums.SeatStatus;
 import com.go_air.enums.SeatType;
@@ -16,7 +19,10 @@ import lombok.*;
 @Builder
 @ToString(exclude = "flight")
 @Entity
-@Table(name = "seats")
+@Table(
+    name = "seats",
+    indexes = @Index(name = "idx_seats_hold_expires_at", columnList = "hold_expires_at")
+)
 public class Seat {
 
     @Id
@@ -42,6 +48,12 @@ public class Seat {
     @Enumerated(EnumType.STRING)
     private TravelClass travelClass; 
 
+    // Set while the seat is RESERVED by a checkout: when the hold lapses and who holds it
+    private LocalDateTime holdExpiresAt;
+
+    @JsonIgnore
+    private String heldBy;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "flight_number", referencedColumnName = "flight_number" ,nullable = false)
     @JsonBackReference //for parent-child relationships and prevent infinite recursion during JSON serialization
@@ -1,19 +1,21 @@
 package com.go_air.enums;
 
 public enum AircraftSize {
-    LIGHT("Light", 15, 40),
-    MEDIUM("Medium", 120, 200),
-    LARGE("Large", 250, 450),
-    JUMBO("Jumbo", 500, 750);
+    LIGHT("Light", 15, 40, 4),     // 2 seats per side (A-B / C-D)
+    MEDIUM("Medium", 120, 200, 6), // 3 seats per side (A-B-C / D-E-F)
+    LARGE("Large", 250, 450, 8),   // 4 per side (A-B-C-D / E-F-G-H)
+    JUMBO("Jumbo", 500, 750, 10);  // e.g., 3-4-3 layout (A-B-C / D-E-F-G / H-I-J)
 
     private final String displayName;
     private final int minSeats;
     private final int maxSeats;
+    private final int seatsPerRow;
 
-    AircraftSize(String displayName, int minSeats, int maxSeats) {
+    AircraftSize(String displayName, int minSeats, int maxSeats, int seatsPerRow) {
         this.displayName = displayName;
         this.minSeats = minSeats;
         this.maxSeats = maxSeats;
+        this.seatsPerRow = seatsPerRow;
     }
 
     public String getDisplayName() {
@@ -27,4 +29,9 @@ public enum AircraftSize {
     public int getMaxSeats() {
         return maxSeats;
     }
+
+    // Seat columns per row, labelled A, B, C... in order
+    public int getSeatsPerRow() {
+        return seatsPerRow;
+    }
 }
\ No newline at end of file
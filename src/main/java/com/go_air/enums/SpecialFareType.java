@@ -16,6 +16,10 @@ public enum SpecialFareType {
         this.minPassengers = minPassengers;
     }
 
+    public int getDiscount() {
+        return discount;
+    }
+
     public Integer applyDiscount(Integer maxPrice) {
         if (maxPrice == null) maxPrice = 10000;  // default maxPrice
         return maxPrice - discount;
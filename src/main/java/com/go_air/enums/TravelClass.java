@@ -2,10 +2,25 @@ package com.go_air.enums;
 
 /**
  * Airline travel classes, can be used for pricing and cabin segmentation.
+ * Each class is priced as a multiple of the flight's base (economy) fare.
  */
 public enum TravelClass {
-    ECONOMY,
-    PREMIUM_ECONOMY,
-    BUSINESS,
-    FIRST_CLASS
+    ECONOMY(1.0),
+    PREMIUM_ECONOMY(1.3),
+    BUSINESS(1.8),
+    FIRST_CLASS(2.5);
+
+    private final double fareMultiplier;
+
+    TravelClass(double fareMultiplier) {
+        this.fareMultiplier = fareMultiplier;
+    }
+
+    public double getFareMultiplier() {
+        return fareMultiplier;
+    }
+
+    public double fareFor(int baseFare) {
+        return baseFare * fareMultiplier;
+    }
 }
@@ -3,5 +3,6 @@ package com.go_air.enums;
 public enum TripType {
     ONE_WAY,
     ROUND_TRIP,
-    MULTI_CITY
+    MULTI_CITY,
+    CONNECTING
 }
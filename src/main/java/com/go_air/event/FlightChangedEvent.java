@@ -0,0 +1,35 @@
+package com.go_air.event;
+
+import com.go_air.entity.Flights;
+import com.go_air.model.dtos.FlightSummaryDTO;
+
+/**
+ * Published whenever a flight row is created, updated or deleted, so that the
+ * in-memory read models built from the flights table can follow it.
+ * <p>
+ * Both sides are immutable summaries of the row: {@code previous} is null on
+ * create and {@code current} is null on delete.
+ */
+public record FlightChangedEvent(FlightSummaryDTO previous, FlightSummaryDTO current) {
+
+    public static FlightChangedEvent created(Flights flight) {
+        return new FlightChangedEvent(null, snapshot(flight));
+    }
+
+    public static FlightChangedEvent updated(FlightSummaryDTO previous, Flights current) {
+        return new FlightChangedEvent(previous, snapshot(current));
+    }
+
+    public static FlightChangedEvent deleted(Flights flight) {
+        return new FlightChangedEvent(snapshot(flight), null);
+    }
+
+    // Detached view, safe to keep after the persistence context is gone
+    public static FlightSummaryDTO snapshot(Flights flight) {
+        return flight == null ? null : FlightSummaryDTO.from(flight);
+    }
+
+    public Long flightId() {
+        return current != null ? current.getId() : previous.getId();
+    }
+}
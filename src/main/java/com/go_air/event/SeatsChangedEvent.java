@@ -0,0 +1,23 @@
+package com.go_air.event;
+
+import com.go_air.enums.SeatStatus;
+
+import java.util.Map;
+
+/**
+ * Published when seats of a flight are created or change status without the flight
+ * row itself being written, so seat-level read models and versions can follow.
+ * <p>
+ * {@code statuses} maps seat number to new status; it is null when the seats of the
+ * flight were (re)generated and have to be read again.
+ */
+public record SeatsChangedEvent(String flightNumber, Map<String, SeatStatus> statuses) {
+
+    public static SeatsChangedEvent regenerated(String flightNumber) {
+        return new SeatsChangedEvent(flightNumber, null);
+    }
+
+    public static SeatsChangedEvent statuses(String flightNumber, Map<String, SeatStatus> statuses) {
+        return new SeatsChangedEvent(flightNumber, Map.copyOf(statuses));
+    }
+}
@@ -0,0 +1,66 @@
+package com.go_air.model.dtos;
+
+import com.go_air.enums.SpecialFareType;
+import com.go_air.enums.TravelClass;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Per-passenger fare of a flight for every travel class and special fare, computed
+ * once from the base (economy) fare and immutable afterwards.
+ * <p>
+ * A fare is the class fare ({@link TravelClass#fareFor}, rounded) minus the special
+ * fare discount, never below zero. A null class is economy, a null special fare is
+ * {@link SpecialFareType#REGULAR}. Search and booking both read prices from here.
+ */
+public final class FareMatrix {
+
+    private final int baseFare;
+
+    // [TravelClass.ordinal()][SpecialFareType.ordinal()]
+    private final int[][] fares;
+
+    // Serialized form, built once with the table
+    private final Map<TravelClass, Map<SpecialFareType, Integer>> view;
+
+    private FareMatrix(int baseFare) {
+        TravelClass[] classes = TravelClass.values();
+        SpecialFareType[] fareTypes = SpecialFareType.values();
+
+        this.baseFare = baseFare;
+        this.fares = new int[classes.length][fareTypes.length];
+
+        Map<TravelClass, Map<SpecialFareType, Integer>> byClass = new EnumMap<>(TravelClass.class);
+        for (TravelClass c : classes) {
+            int classFare = (int) Math.round(c.fareFor(baseFare));
+            Map<SpecialFareType, Integer> byFareType = new EnumMap<>(SpecialFareType.class);
+            for (SpecialFareType t : fareTypes) {
+                int fare = Math.max(classFare - t.getDiscount(), 0);
+                fares[c.ordinal()][t.ordinal()] = fare;
+                byFareType.put(t, fare);
+            }
+            byClass.put(c, Collections.unmodifiableMap(byFareType));
+        }
+        this.view = Collections.unmodifiableMap(byClass);
+    }
+
+    public static FareMatrix of(int baseFare) {
+        return new FareMatrix(baseFare);
+    }
+
+    public int getBaseFare() {
+        return baseFare;
+    }
+
+    public Map<TravelClass, Map<SpecialFareType, Integer>> getFares() {
+        return view;
+    }
+
+    public int fare(TravelClass travelClass, SpecialFareType fareType) {
+        TravelClass c = (travelClass != null) ? travelClass : TravelClass.ECONOMY;
+        SpecialFareType t = (fareType != null) ? fareType : SpecialFareType.REGULAR;
+        return fares[c.ordinal()][t.ordinal()];
+    }
+}
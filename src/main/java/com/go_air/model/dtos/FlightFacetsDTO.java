@@ -0,0 +1,38 @@
+package com.go_air.model.dtos;
+
+import lombok.*;
+
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FlightFacetsDTO {
+
+    private long total;
+    private Integer minPrice;
+    private Integer maxPrice;
+
+    // Facet value -> number of matching flights
+    private Map<String, Long> stops;
+    private Map<String, Long> bookingTypes;
+    private Map<String, Long> departureTypes;
+    private Map<String, Long> airlines;
+    private Map<String, Long> aircraftSizes;
+
+    private int priceBucketSize;
+    private List<PriceBucket> priceHistogram;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PriceBucket {
+        private int from;   // inclusive
+        private int to;     // exclusive
+        private long count;
+    }
+}
@@ -0,0 +1,93 @@
+package com.go_air.model.dtos;
+
+import com.go_air.entity.Flights;
+import com.go_air.enums.AircraftSize;
+import com.go_air.enums.BookingType;
+import com.go_air.enums.DepartureType;
+import com.go_air.enums.JourneyStatus;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.go_air.enums.SpecialFareType;
+import com.go_air.enums.TravelClass;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Read-only view of a flight row, without seats, returned by every search.
+ * Loaded with constructor queries so search results never become managed entities;
+ * immutable, so the in-memory indexes can hand out the same instance to every caller.
+ * Constructor parameter order is the column list of {@code FlightRepository.SUMMARY}.
+ * {@code fares} is not a column, it is attached by the fare engine before a search returns.
+ */
+@Value
+@Builder(toBuilder = true)
+@AllArgsConstructor
+public class FlightSummaryDTO {
+
+    Long id;
+    String flightNumber;
+    String airline;
+    String sourceAirport;
+    String destinationAirport;
+    int stop;
+    String destinationStop;
+    BookingType bookingType;
+    int cancellationCharges;
+    DepartureType departureType;
+    AircraftSize aircraftSize;
+    LocalTime boardingTime;
+    LocalDate departureDate;
+    LocalTime departureTime;
+    LocalDate arrivalDate;
+    LocalTime arrivalTime;
+    int durationMinutes;
+    Integer price;
+    int availableSeats;
+    JourneyStatus journeyStatus;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    FareMatrix fares;
+
+    // Column constructor, used by the constructor queries and ConstructorResult mappings
+    public FlightSummaryDTO(Long id, String flightNumber, String airline, String sourceAirport,
+                            String destinationAirport, int stop, String destinationStop, BookingType bookingType,
+                            int cancellationCharges, DepartureType departureType, AircraftSize aircraftSize,
+                            LocalTime boardingTime, LocalDate departureDate, LocalTime departureTime,
+                            LocalDate arrivalDate, LocalTime arrivalTime, int durationMinutes, Integer price,
+                            int availableSeats, JourneyStatus journeyStatus) {
+        this(id, flightNumber, airline, sourceAirport, destinationAirport, stop, destinationStop, bookingType,
+                cancellationCharges, departureType, aircraftSize, boardingTime, departureDate, departureTime,
+                arrivalDate, arrivalTime, durationMinutes, price, availableSeats, journeyStatus, null);
+    }
+
+    public static FlightSummaryDTO from(Flights flight) {
+        return new FlightSummaryDTO(
+                flight.getId(),
+                flight.getFlightNumber(),
+                flight.getAirline(),
+                flight.getSourceAirport(),
+                flight.getDestinationAirport(),
+                flight.getStop(),
+                flight.getDestinationStop(),
+                flight.getBookingType(),
+                flight.getCancellationCharges(),
+                flight.getDepartureType(),
+                flight.getAircraftSize(),
+                flight.getBoardingTime(),
+                flight.getDepartureDate(),
+                flight.getDepartureTime(),
+                flight.getArrivalDate(),
+                flight.getArrivalTime(),
+                flight.getDurationMinutes(),
+                flight.getPrice(),
+                flight.getAvailableSeats(),
+                flight.getJourneyStatus()
+        );
+    }
+
+    // Listed price is the economy fare for the special fare, the matrix goes along for the other classes
+    public FlightSummaryDTO withFares(FareMatrix fares, SpecialFareType fareType) {
+        return toBuilder().price(fares.fare(TravelClass.ECONOMY, fareType)).fares(fares).build();
+    }
+}
@@ -0,0 +1,23 @@
+package com.go_air.model.dtos;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ItineraryDTO {
+
+    private int connections;
+    private LocalDateTime departure;
+    private LocalDateTime arrival;
+    private long totalDurationMinutes;
+    private List<Integer> layoverMinutes;
+    private int totalPrice;
+
+    private List<FlightSummaryDTO> flights;
+}
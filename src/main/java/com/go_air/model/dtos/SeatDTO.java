@@ -0,0 +1,24 @@
+package com.go_air.model.dtos;
+
+import com.go_air.enums.SeatPosition;
+import com.go_air.enums.SeatStatus;
+import com.go_air.enums.SeatType;
+import com.go_air.enums.TravelClass;
+import lombok.*;
+
+/**
+ * One seat of a seat map, same fields and order as the {@code Seat} entity without the flight.
+ */
+@Value
+@AllArgsConstructor
+public class SeatDTO {
+
+    Long id;
+    String seatNumber;
+    int rowNumber;
+    String columnLabel;
+    SeatType seatType;
+    SeatPosition seatPosition;
+    SeatStatus seatStatus;
+    TravelClass travelClass;
+}
@@ -4,51 +4,49 @@ import com.go_air.entity.Booking;
 import com.go_air.entity.User;
 import com.go_air.enums.BookingStatus;
 import com.go_air.enums.JourneyStatus;
+import com.go_air.enums.PaymentStatus;
 import com.go_air.enums.SpecialFareType;
 import com.go_air.enums.TripType;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.time.LocalDate;
-import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface BookingRepository extends JpaRepository<Booking, Long> {
 
 
-	@Query("SELECT CASE WHEN COUNT(b) > 0 THEN true ELSE false END " +
-		       "FROM Booking b JOIN b.passengers p " +
-		       "WHERE b.flightNumber = :flightNumber " +
-		       "AND b.user.userID = :userId " +
-		       "AND p.name = :passengerName")
-		boolean existsByFlightNumberAndUser_UserIDAndPassengers_Name(
-		        @Param("flightNumber") String flightNumber,
-		        @Param("userId") String userId,
-		        @Param("passengerName") String passengerName);
+	// (flight number, passenger name) pairs the user has already booked, among the given flights and names
+	@Query("""
+			SELECT b.flightNumber, p.name FROM Booking b JOIN b.passengers p
+			WHERE b.user.userID = :userId AND b.flightNumber IN :flightNumbers AND p.name IN :names""")
+	List<Object[]> findBookedPassengerNames(@Param("userId") String userId,
+	                                        @Param("flightNumbers") Collection<String> flightNumbers,
+	                                        @Param("names") Collection<String> names);
+
+	/**
+	 * Overlap check for many passengers at once: entry i of the arrays is a passport and the
+	 * trip it is about to take (ISO timestamps). Returns the 1-based positions of the entries
+	 * whose passport already has a trip overlapping that one. Each entry is one range scan of
+	 * idx_passenger_passport_arrival over the passport's trips arriving after the departure.
+	 */
+	@Query(value = """
+			SELECT DISTINCT r.i
+			FROM unnest(CAST(:passports AS text[]), CAST(:departures AS timestamp[]), CAST(:arrivals AS timestamp[]))
+			     WITH ORDINALITY AS r(passport_number, departure_at, arrival_at, i)
+			JOIN passenger p ON p.passport_number = r.passport_number
+			                AND p.arrival_at > r.departure_at
+			                AND p.departure_at < r.arrival_at""",
+			nativeQuery = true)
+	List<Long> findOverlappingPassports(@Param("passports") String[] passports,
+	                                    @Param("departures") String[] departures,
+	                                    @Param("arrivals") String[] arrivals);
 
-	 // Check if a passenger (by passport) has overlapping booking
-    @Query(value = """
-        SELECT CASE WHEN COUNT(*) > 0 THEN true ELSE false END
-        FROM booking b
-        JOIN passenger p ON b.id = p.booking_id
-        WHERE p.passport_number = :passportNumber
-          AND (
-               (b.departure_date < :arrDate OR (b.departure_date = :arrDate AND b.departure_time < :arrTime))
-           AND (:depDate < b.arrival_date OR (:depDate = b.arrival_date AND :depTime < b.arrival_time))
-          )
-    """, nativeQuery = true)
-    boolean existsBookingConflictByPassport(
-            @Param("passportNumber") String passportNumber,
-            @Param("depDate") LocalDate depDate,
-            @Param("depTime") LocalTime depTime,
-            @Param("arrDate") LocalDate arrDate,
-            @Param("arrTime") LocalTime arrTime
-    );
-    
 
     // Find all bookings by user ID
     List<Booking> findByUser_UserID(String userId);
@@ -89,4 +87,12 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
     @Query("SELECT b FROM Booking b LEFT JOIN FETCH b.passengers WHERE b.user.userID = :userId AND b.status = :status")
     List<Booking> findByUser_UserIDAndStatusWithPassengers(@Param("userId") String userId, @Param("status") BookingStatus status);
 
+    // Payment outcome for many bookings in one statement
+    @Modifying
+    @Query("UPDATE Booking b SET b.status = :status, b.paymentStatus = :paymentStatus, b.paymentID = :paymentId WHERE b.id IN :ids")
+    int updatePaymentOutcome(@Param("ids") Collection<Long> ids,
+                             @Param("status") BookingStatus status,
+                             @Param("paymentStatus") PaymentStatus paymentStatus,
+                             @Param("paymentId") String paymentId);
+
 }
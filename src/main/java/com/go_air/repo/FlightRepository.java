@@ -1,56 +1,174 @@
 package com.go_air.repo;
 
 import com.go_air.entity.Flights;
+import com.go_air.enums.AircraftSize;
+import com.go_air.enums.BookingType;
+import com.go_air.enums.DepartureType;
+import com.go_air.model.dtos.FlightSummaryDTO;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface FlightRepository extends JpaRepository<Flights, Long> {
-
-	// Filter source airports by search text
-    @Query("""
-    		SELECT DISTINCT f.sourceAirport 
-            FROM Flights f 
-            WHERE LOWER(f.sourceAirport) LIKE LOWER(CONCAT(:query, '%'))""")
-    List<String> searchSourceAirports(@Param("query") String query);
-
-    // Filter destination airports by search text
-    @Query("""
-    		SELECT DISTINCT f.destinationAirport 
-            FROM Flights f 
-            WHERE LOWER(f.destinationAirport) LIKE LOWER(CONCAT(:query, '%'))""")
-    List<String> searchDestinationAirports(@Param("query") String query);
+public interface FlightRepository extends JpaRepository<Flights, Long>, FlightSeatsRepository {
+
+	// Constructor expression for FlightSummaryDTO, every search selects only these columns
+	String SUMMARY = """
+		    new com.go_air.model.dtos.FlightSummaryDTO(
+		        f.id, f.flightNumber, f.airline, f.sourceAirport, f.destinationAirport,
+		        f.stop, f.destinationStop, f.bookingType, f.cancellationCharges, f.departureType,
+		        f.aircraftSize, f.boardingTime, f.departureDate, f.departureTime, f.arrivalDate,
+		        f.arrivalTime, f.durationMinutes, f.price, f.availableSeats, f.journeyStatus)
+		""";
+
+	// Rows per round-trip when streaming, the driver only holds one batch at a time
+	String STREAM_FETCH_SIZE = "500";
+
+	// Filter source airports by search text: the `limit` most used, as AirportSuggestionIndex ranks them
+    @Query(value = """
+    		SELECT source_airport
+            FROM flights
+            WHERE LOWER(source_airport) LIKE LOWER(CONCAT(:query, '%'))
+            GROUP BY source_airport
+            ORDER BY COUNT(*) DESC, source_airport COLLATE "C"
+            LIMIT :limit""", nativeQuery = true)
+    List<String> searchSourceAirports(@Param("query") String query, @Param("limit") int limit);
+
+    // Filter destination airports by search text, ranked the same way
+    @Query(value = """
+    		SELECT destination_airport
+            FROM flights
+            WHERE LOWER(destination_airport) LIKE LOWER(CONCAT(:query, '%'))
+            GROUP BY destination_airport
+            ORDER BY COUNT(*) DESC, destination_airport COLLATE "C"
+            LIMIT :limit""", nativeQuery = true)
+    List<String> searchDestinationAirports(@Param("query") String query, @Param("limit") int limit);
+
+    // Airport -> number of flights, used to build the suggestion index
+    @Query("SELECT f.sourceAirport, COUNT(f) FROM Flights f GROUP BY f.sourceAirport")
+    List<Object[]> countFlightsBySourceAirport();
+
+    @Query("SELECT f.destinationAirport, COUNT(f) FROM Flights f GROUP BY f.destinationAirport")
+    List<Object[]> countFlightsByDestinationAirport();
 	
     
 	Optional<Flights> findByFlightNumber(String flightNumber);
 
-	@Query(value = """
-		    SELECT * FROM flights f
+	List<Flights> findByFlightNumberIn(Collection<String> flightNumbers);
+
+	// [id, version, aircraft size] of the flight: its ETag, and the layout of its seat map
+	@Query("SELECT f.id, f.version, f.aircraftSize FROM Flights f WHERE f.flightNumber = :flightNumber")
+	List<Object[]> findVersionByFlightNumber(@Param("flightNumber") String flightNumber);
+
+	// For writes that go through JPA (admin updates, seat generation); see FlightVersions
+	@Modifying
+	@Query(value = "UPDATE flights SET version = version + 1 WHERE flight_number IN (:flightNumbers)", nativeQuery = true)
+	int bumpVersions(@Param("flightNumbers") Collection<String> flightNumbers);
+
+	// Whole-table summaries, used to build the in-memory search models
+	@Query("SELECT " + SUMMARY + " FROM Flights f")
+	List<FlightSummaryDTO> findAllSummaries();
+
+	// Rows findFlightsByFilters can return at all: its COALESCE filters never match a NULL column
+	@Query("SELECT " + SUMMARY + """
+		    FROM Flights f
+		    WHERE f.sourceAirport IS NOT NULL AND f.destinationAirport IS NOT NULL AND
+		        f.departureDate IS NOT NULL AND f.stop IS NOT NULL AND f.bookingType IS NOT NULL AND
+		        f.departureType IS NOT NULL AND f.price IS NOT NULL AND f.aircraftSize IS NOT NULL
+		""")
+	List<FlightSummaryDTO> findSearchableSummaries();
+
+	@Query("SELECT " + SUMMARY + " FROM Flights f WHERE f.flightNumber IN :flightNumbers")
+	List<FlightSummaryDTO> findSummariesByFlightNumbers(@Param("flightNumbers") Collection<String> flightNumbers);
+
+	// Whole table through a JDBC cursor, for the streaming /admin/flights (needs a transaction)
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+	@Query("SELECT " + SUMMARY + " FROM Flights f ORDER BY f.id")
+	Stream<FlightSummaryDTO> streamAllSummaries();
+
+	@Query("SELECT " + SUMMARY + """
+		    FROM Flights f
 		    WHERE
-		        (:airlines IS NULL OR f.airline IN (:airlines)) AND
-		        f.source_airport = COALESCE(:sourceAirport, f.source_airport) AND
-		        f.destination_airport = COALESCE(:destinationAirport, f.destination_airport) AND
-		        f.departure_date = COALESCE(:departureDate, f.departure_date) AND
+		        (:allAirlines = true OR f.airline IN :airlines) AND
+		        f.sourceAirport = COALESCE(:sourceAirport, f.sourceAirport) AND
+		        f.destinationAirport = COALESCE(:destinationAirport, f.destinationAirport) AND
+		        f.departureDate = COALESCE(:departureDate, f.departureDate) AND
 		        f.stop = COALESCE(:stop, f.stop) AND
-		        f.booking_type = COALESCE(:bookingType, f.booking_type) AND
-		        f.departure_type = COALESCE(:departureType, f.departure_type) AND
+		        f.bookingType = COALESCE(:bookingType, f.bookingType) AND
+		        f.departureType = COALESCE(:departureType, f.departureType) AND
 		        f.price >= COALESCE(:minPrice, f.price) AND
 		        f.price <= COALESCE(:maxPrice, f.price) AND
-		        f.available_seats >= COALESCE(:passengers, f.available_seats) AND
-		        f.aircraft_size = COALESCE(:aircraftSize, f.aircraft_size)
-		""", nativeQuery = true)
-		List<Flights> findFlightsByFilters(
+		        f.availableSeats >= COALESCE(:passengers, f.availableSeats) AND
+		        f.aircraftSize = COALESCE(:aircraftSize, f.aircraftSize)
+		""")
+		List<FlightSummaryDTO> findFlightsByFilters(
+		    @Param("allAirlines") boolean allAirlines,
 		    @Param("airlines") List<String> airlines,
 		    @Param("sourceAirport") String sourceAirport,
 		    @Param("destinationAirport") String destinationAirport,
 		    @Param("departureDate") LocalDate departureDate,
 		    @Param("stop") Integer stop,
+		    @Param("bookingType") BookingType bookingType,
+		    @Param("departureType") DepartureType departureType,
+		    @Param("minPrice") Integer minPrice,
+		    @Param("maxPrice") Integer maxPrice,
+		    @Param("passengers") Integer passengers,
+		    @Param("aircraftSize") AircraftSize aircraftSize
+		);
+
+	// Same filters, read through a JDBC cursor for the streaming responses (needs a transaction)
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+	@Query("SELECT " + SUMMARY + """
+		    FROM Flights f
+		    WHERE
+		        (:allAirlines = true OR f.airline IN :airlines) AND
+		        f.sourceAirport = COALESCE(:sourceAirport, f.sourceAirport) AND
+		        f.destinationAirport = COALESCE(:destinationAirport, f.destinationAirport) AND
+		        f.departureDate = COALESCE(:departureDate, f.departureDate) AND
+		        f.stop = COALESCE(:stop, f.stop) AND
+		        f.bookingType = COALESCE(:bookingType, f.bookingType) AND
+		        f.departureType = COALESCE(:departureType, f.departureType) AND
+		        f.price >= COALESCE(:minPrice, f.price) AND
+		        f.price <= COALESCE(:maxPrice, f.price) AND
+		        f.availableSeats >= COALESCE(:passengers, f.availableSeats) AND
+		        f.aircraftSize = COALESCE(:aircraftSize, f.aircraftSize)
+		    ORDER BY f.id
+		""")
+		Stream<FlightSummaryDTO> streamFlightsByFilters(
+		    @Param("allAirlines") boolean allAirlines,
+		    @Param("airlines") List<String> airlines,
+		    @Param("sourceAirport") String sourceAirport,
+		    @Param("destinationAirport") String destinationAirport,
+		    @Param("departureDate") LocalDate departureDate,
+		    @Param("stop") Integer stop,
+		    @Param("bookingType") BookingType bookingType,
+		    @Param("departureType") DepartureType departureType,
+		    @Param("minPrice") Integer minPrice,
+		    @Param("maxPrice") Integer maxPrice,
+		    @Param("passengers") Integer passengers,
+		    @Param("aircraftSize") AircraftSize aircraftSize
+		);
+
+	// Multi-leg search, see Flights.findFlightsForLegs. Rows are [FlightSummaryDTO, leg index].
+	List<Object[]> findFlightsForLegs(
+		    @Param("sources") String[] sources,
+		    @Param("destinations") String[] destinations,
+		    @Param("dates") String[] dates,
+		    @Param("airlines") String[] airlines,
+		    @Param("stop") Integer stop,
 		    @Param("bookingType") String bookingType,
 		    @Param("departureType") String departureType,
 		    @Param("minPrice") Integer minPrice,
@@ -59,35 +177,228 @@ public interface FlightRepository extends JpaRepository<Flights, Long> {
 		    @Param("aircraftSize") String aircraftSize
 		);
 
-   // For Admin
-	@Query(value = """
-		    SELECT * FROM flights f
+   // For Admin (offset page, LIMIT pushed into SQL)
+	@Query("SELECT " + SUMMARY + """
+		    FROM Flights f
 		    WHERE
-		        (COALESCE(:airlinesText, '') = '' OR f.airline = ANY(string_to_array(:airlinesText, ','))) AND
-		        (COALESCE(:sourceAirport, '') = '' OR f.source_airport = :sourceAirport) AND
-		        (COALESCE(:destinationAirport, '') = '' OR f.destination_airport = :destinationAirport) AND
-		        (:departureDate IS NULL OR f.departure_date = CAST(:departureDate AS date)) AND
+		        (:allAirlines = true OR f.airline IN :airlines) AND
+		        (:sourceAirport IS NULL OR f.sourceAirport = :sourceAirport) AND
+		        (:destinationAirport IS NULL OR f.destinationAirport = :destinationAirport) AND
+		        (CAST(:departureDate AS LocalDate) IS NULL OR f.departureDate = :departureDate) AND
 		        (:stop IS NULL OR f.stop = :stop) AND
-		        (:bookingType IS NULL OR f.booking_type = CAST(:bookingType AS TEXT)) AND
-		        (:departureType IS NULL OR f.departure_type = CAST(:departureType AS TEXT)) AND
+		        (:bookingType IS NULL OR f.bookingType = :bookingType) AND
+		        (:departureType IS NULL OR f.departureType = :departureType) AND
 		        (:minPrice IS NULL OR f.price >= :minPrice) AND
 		        (:maxPrice IS NULL OR f.price <= :maxPrice) AND
-		        (:aircraftSize IS NULL OR f.aircraft_size = CAST(:aircraftSize AS TEXT))
+		        (:aircraftSize IS NULL OR f.aircraftSize = :aircraftSize)
 		    ORDER BY f.id
+		    LIMIT :limit OFFSET :offset
+		""")
+		List<FlightSummaryDTO> searchFlightsByPaginationAndFilters(
+		        @Param("allAirlines") boolean allAirlines,
+		        @Param("airlines") List<String> airlines,
+		        @Param("sourceAirport") String sourceAirport,
+		        @Param("destinationAirport") String destinationAirport,
+		        @Param("departureDate") LocalDate departureDate,
+		        @Param("stop") Integer stop,
+		        @Param("bookingType") BookingType bookingType,
+		        @Param("departureType") DepartureType departureType,
+		        @Param("minPrice") Integer minPrice,
+		        @Param("maxPrice") Integer maxPrice,
+		        @Param("aircraftSize") AircraftSize aircraftSize,
+		        @Param("limit") int limit,
+		        @Param("offset") long offset
+		);
+
+	// For Admin (keyset page seeking on id, cost independent of page depth)
+	@Query("SELECT " + SUMMARY + """
+		    FROM Flights f
+		    WHERE
+		        f.id > :afterId AND
+		        (:allAirlines = true OR f.airline IN :airlines) AND
+		        (:sourceAirport IS NULL OR f.sourceAirport = :sourceAirport) AND
+		        (:destinationAirport IS NULL OR f.destinationAirport = :destinationAirport) AND
+		        (CAST(:departureDate AS LocalDate) IS NULL OR f.departureDate = :departureDate) AND
+		        (:stop IS NULL OR f.stop = :stop) AND
+		        (:bookingType IS NULL OR f.bookingType = :bookingType) AND
+		        (:departureType IS NULL OR f.departureType = :departureType) AND
+		        (:minPrice IS NULL OR f.price >= :minPrice) AND
+		        (:maxPrice IS NULL OR f.price <= :maxPrice) AND
+		        (:aircraftSize IS NULL OR f.aircraftSize = :aircraftSize)
+		    ORDER BY f.id
+		    LIMIT :limit
+		""")
+		List<FlightSummaryDTO> searchFlightsAfterId(
+		        @Param("allAirlines") boolean allAirlines,
+		        @Param("airlines") List<String> airlines,
+		        @Param("sourceAirport") String sourceAirport,
+		        @Param("destinationAirport") String destinationAirport,
+		        @Param("departureDate") LocalDate departureDate,
+		        @Param("stop") Integer stop,
+		        @Param("bookingType") BookingType bookingType,
+		        @Param("departureType") DepartureType departureType,
+		        @Param("minPrice") Integer minPrice,
+		        @Param("maxPrice") Integer maxPrice,
+		        @Param("aircraftSize") AircraftSize aircraftSize,
+		        @Param("afterId") long afterId,
+		        @Param("limit") int limit
+		);
+
+	// For Admin (keyset page seeking on (price, id), served by idx_flights_price_id)
+	@Query("SELECT " + SUMMARY + """
+		    FROM Flights f
+		    WHERE
+		        (f.price, f.id) > (:afterPrice, :afterId) AND
+		        (:allAirlines = true OR f.airline IN :airlines) AND
+		        (:sourceAirport IS NULL OR f.sourceAirport = :sourceAirport) AND
+		        (:destinationAirport IS NULL OR f.destinationAirport = :destinationAirport) AND
+		        (CAST(:departureDate AS LocalDate) IS NULL OR f.departureDate = :departureDate) AND
+		        (:stop IS NULL OR f.stop = :stop) AND
+		        (:bookingType IS NULL OR f.bookingType = :bookingType) AND
+		        (:departureType IS NULL OR f.departureType = :departureType) AND
+		        (:minPrice IS NULL OR f.price >= :minPrice) AND
+		        (:maxPrice IS NULL OR f.price <= :maxPrice) AND
+		        (:aircraftSize IS NULL OR f.aircraftSize = :aircraftSize)
+		    ORDER BY f.price, f.id
+		    LIMIT :limit
+		""")
+		List<FlightSummaryDTO> searchFlightsAfterPrice(
+		        @Param("allAirlines") boolean allAirlines,
+		        @Param("airlines") List<String> airlines,
+		        @Param("sourceAirport") String sourceAirport,
+		        @Param("destinationAirport") String destinationAirport,
+		        @Param("departureDate") LocalDate departureDate,
+		        @Param("stop") Integer stop,
+		        @Param("bookingType") BookingType bookingType,
+		        @Param("departureType") DepartureType departureType,
+		        @Param("minPrice") Integer minPrice,
+		        @Param("maxPrice") Integer maxPrice,
+		        @Param("aircraftSize") AircraftSize aircraftSize,
+		        @Param("afterPrice") int afterPrice,
+		        @Param("afterId") long afterId,
+		        @Param("limit") int limit
+		);
+
+	// For Admin (first page sorted by price)
+	@Query("SELECT " + SUMMARY + """
+		    FROM Flights f
+		    WHERE
+		        (:allAirlines = true OR f.airline IN :airlines) AND
+		        (:sourceAirport IS NULL OR f.sourceAirport = :sourceAirport) AND
+		        (:destinationAirport IS NULL OR f.destinationAirport = :destinationAirport) AND
+		        (CAST(:departureDate AS LocalDate) IS NULL OR f.departureDate = :departureDate) AND
+		        (:stop IS NULL OR f.stop = :stop) AND
+		        (:bookingType IS NULL OR f.bookingType = :bookingType) AND
+		        (:departureType IS NULL OR f.departureType = :departureType) AND
+		        (:minPrice IS NULL OR f.price >= :minPrice) AND
+		        (:maxPrice IS NULL OR f.price <= :maxPrice) AND
+		        (:aircraftSize IS NULL OR f.aircraftSize = :aircraftSize)
+		    ORDER BY f.price, f.id
+		    LIMIT :limit OFFSET :offset
+		""")
+		List<FlightSummaryDTO> searchFlightsByPriceWithPagination(
+		        @Param("allAirlines") boolean allAirlines,
+		        @Param("airlines") List<String> airlines,
+		        @Param("sourceAirport") String sourceAirport,
+		        @Param("destinationAirport") String destinationAirport,
+		        @Param("departureDate") LocalDate departureDate,
+		        @Param("stop") Integer stop,
+		        @Param("bookingType") BookingType bookingType,
+		        @Param("departureType") DepartureType departureType,
+		        @Param("minPrice") Integer minPrice,
+		        @Param("maxPrice") Integer maxPrice,
+		        @Param("aircraftSize") AircraftSize aircraftSize,
+		        @Param("limit") int limit,
+		        @Param("offset") long offset
+		);
+
+	// For Admin (total for the same filters, index-only where possible)
+	@Query("""
+		    SELECT COUNT(f) FROM Flights f
+		    WHERE
+		        (:allAirlines = true OR f.airline IN :airlines) AND
+		        (:sourceAirport IS NULL OR f.sourceAirport = :sourceAirport) AND
+		        (:destinationAirport IS NULL OR f.destinationAirport = :destinationAirport) AND
+		        (CAST(:departureDate AS LocalDate) IS NULL OR f.departureDate = :departureDate) AND
+		        (:stop IS NULL OR f.stop = :stop) AND
+		        (:bookingType IS NULL OR f.bookingType = :bookingType) AND
+		        (:departureType IS NULL OR f.departureType = :departureType) AND
+		        (:minPrice IS NULL OR f.price >= :minPrice) AND
+		        (:maxPrice IS NULL OR f.price <= :maxPrice) AND
+		        (:aircraftSize IS NULL OR f.aircraftSize = :aircraftSize)
+		""")
+		long countFlightsByFilters(
+		        @Param("allAirlines") boolean allAirlines,
+		        @Param("airlines") List<String> airlines,
+		        @Param("sourceAirport") String sourceAirport,
+		        @Param("destinationAirport") String destinationAirport,
+		        @Param("departureDate") LocalDate departureDate,
+		        @Param("stop") Integer stop,
+		        @Param("bookingType") BookingType bookingType,
+		        @Param("departureType") DepartureType departureType,
+		        @Param("minPrice") Integer minPrice,
+		        @Param("maxPrice") Integer maxPrice,
+		        @Param("aircraftSize") AircraftSize aircraftSize
+		);
+
+	// For Admin (facet counts and price histogram for the same filters in one statement).
+	// Rows are [facet, value, flights, min fare, max fare], facet names as in FlightFacets;
+	// fares are the economy fare for :discount (FareMatrix), so they match the listed prices.
+	@Query(value = """
+		    SELECT
+		        CASE
+		            WHEN GROUPING(r.stop) = 0 THEN 'stop'
+		            WHEN GROUPING(r.booking_type) = 0 THEN 'bookingType'
+		            WHEN GROUPING(r.departure_type) = 0 THEN 'departureType'
+		            WHEN GROUPING(r.airline) = 0 THEN 'airline'
+		            WHEN GROUPING(r.aircraft_size) = 0 THEN 'aircraftSize'
+		            WHEN GROUPING(r.bucket) = 0 THEN 'priceBucket'
+		            ELSE 'total'
+		        END AS facet,
+		        COALESCE(CAST(r.stop AS text), r.booking_type, r.departure_type, r.airline,
+		                 r.aircraft_size, CAST(r.bucket AS text)) AS value,
+		        COUNT(*) AS flights,
+		        MIN(r.fare) AS min_fare,
+		        MAX(r.fare) AS max_fare
+		    FROM (
+		        SELECT f.stop, f.booking_type, f.departure_type, f.airline, f.aircraft_size,
+		               GREATEST(f.price - CAST(:discount AS integer), 0) AS fare,
+		               CAST(FLOOR(GREATEST(f.price - CAST(:discount AS integer), 0) / CAST(:bucketSize AS numeric)) AS integer) AS bucket
+		        FROM flights f
+		        WHERE
+		            (COALESCE(CAST(:airlinesText AS text), '') = '' OR f.airline = ANY(string_to_array(CAST(:airlinesText AS text), ','))) AND
+		            (CAST(:sourceAirport AS text) IS NULL OR f.source_airport = CAST(:sourceAirport AS text)) AND
+		            (CAST(:destinationAirport AS text) IS NULL OR f.destination_airport = CAST(:destinationAirport AS text)) AND
+		            (CAST(:departureDate AS date) IS NULL OR f.departure_date = CAST(:departureDate AS date)) AND
+		            (CAST(:stop AS integer) IS NULL OR f.stop = CAST(:stop AS integer)) AND
+		            (CAST(:bookingType AS text) IS NULL OR f.booking_type = CAST(:bookingType AS text)) AND
+		            (CAST(:departureType AS text) IS NULL OR f.departure_type = CAST(:departureType AS text)) AND
+		            (CAST(:minPrice AS integer) IS NULL OR f.price >= CAST(:minPrice AS integer)) AND
+		            (CAST(:maxPrice AS integer) IS NULL OR f.price <= CAST(:maxPrice AS integer)) AND
+		            (CAST(:aircraftSize AS text) IS NULL OR f.aircraft_size = CAST(:aircraftSize AS text))
+		    ) r
+		    GROUP BY GROUPING SETS ((r.stop), (r.booking_type), (r.departure_type), (r.airline),
+		                            (r.aircraft_size), (r.bucket), ())
 		""", nativeQuery = true)
-		List<Flights> searchFlightsByPaginationAndFilters(
+		List<Object[]> countFacetsByFilters(
 		        @Param("airlinesText") String airlinesText,
 		        @Param("sourceAirport") String sourceAirport,
 		        @Param("destinationAirport") String destinationAirport,
-		        @Param("departureDate") String departureDate,
+		        @Param("departureDate") LocalDate departureDate,
 		        @Param("stop") Integer stop,
 		        @Param("bookingType") String bookingType,
 		        @Param("departureType") String departureType,
 		        @Param("minPrice") Integer minPrice,
 		        @Param("maxPrice") Integer maxPrice,
-		        @Param("aircraftSize") String aircraftSize
+		        @Param("aircraftSize") String aircraftSize,
+		        @Param("discount") int discount,
+		        @Param("bucketSize") int bucketSize
 		);
 
+	// Planner row estimate for the whole table (-1 until the table has been analyzed)
+	@Query(value = "SELECT CAST(c.reltuples AS bigint) FROM pg_class c WHERE c.relname = 'flights'", nativeQuery = true)
+	Long estimateFlightCount();
+
 	
     // prevent duplicate flights
     Optional<Flights> findByFlightNumberAndDepartureDateAndDepartureTime(
@@ -0,0 +1,16 @@
+package com.go_air.repo;
+
+import java.util.OptionalInt;
+
+// Seat inventory writes over plain JDBC, mixed into FlightRepository
+public interface FlightSeatsRepository {
+
+	/**
+	 * Subtracts {@code seats} from the flight's available seats if that many are left, in one
+	 * conditional UPDATE inside a savepoint of the current transaction. Returns the seats
+	 * left, or empty when there were too few (nothing changes then). A failed statement is
+	 * rolled back to the savepoint and rethrown translated, so the transaction stays usable
+	 * and the caller may try again.
+	 */
+	OptionalInt takeSeats(String flightNumber, int seats);
+}
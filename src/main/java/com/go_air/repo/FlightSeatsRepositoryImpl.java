@@ -0,0 +1,64 @@
+package com.go_air.repo;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.OptionalInt;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+import org.springframework.jdbc.support.SQLErrorCodeSQLExceptionTranslator;
+
+public class FlightSeatsRepositoryImpl implements FlightSeatsRepository {
+
+	private static final String TAKE_SEATS = """
+			UPDATE flights SET available_seats = available_seats - ?, version = version + 1
+			WHERE flight_number = ? AND available_seats >= ?
+			RETURNING available_seats""";
+
+	// PostgreSQL codes: deadlocks, lock timeouts and serialization failures become ConcurrencyFailureExceptions
+	private static final SQLExceptionTranslator TRANSLATOR = new SQLErrorCodeSQLExceptionTranslator("PostgreSQL");
+
+	@Autowired
+	private DataSource dataSource;
+
+	// JDBC rather than a native @Query: Hibernate marks the whole transaction rollback-only
+	// on any failed statement, which would defeat retrying after the savepoint
+	@Override
+	public OptionalInt takeSeats(String flightNumber, int seats) {
+		// The transaction's own connection, so the change commits or rolls back with it
+		Connection connection = DataSourceUtils.getConnection(dataSource);
+		try {
+			Savepoint savepoint = connection.setSavepoint();
+			try (PreparedStatement update = connection.prepareStatement(TAKE_SEATS)) {
+				update.setInt(1, seats);
+				update.setString(2, flightNumber);
+				update.setInt(3, seats);
+				try (ResultSet left = update.executeQuery()) {
+					OptionalInt result = left.next() ? OptionalInt.of(left.getInt(1)) : OptionalInt.empty();
+					connection.releaseSavepoint(savepoint);
+					return result;
+				}
+			} catch (SQLException e) {
+				// PostgreSQL refuses every further statement of the transaction until this
+				connection.rollback(savepoint);
+				throw translate(e);
+			}
+		} catch (SQLException e) {
+			throw new UncategorizedSQLException("take seats", TAKE_SEATS, e);
+		} finally {
+			DataSourceUtils.releaseConnection(connection, dataSource);
+		}
+	}
+
+	private static RuntimeException translate(SQLException e) {
+		RuntimeException translated = TRANSLATOR.translate("take seats", TAKE_SEATS, e);
+		return translated != null ? translated : new UncategorizedSQLException("take seats", TAKE_SEATS, e);
+	}
+}
@@ -2,6 +2,8 @@ package com.go_air.repo;
 
 import com.go_air.entity.Passenger;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 
@@ -11,4 +13,28 @@ public interface PassengerRepository extends JpaRepository<Passenger, Long> {
 	Passenger findByPassportNumber(String passportNumber);
 
 	List<Passenger> findByUser_UserID(String userId);
+
+	// Copies the booking's travel window to the next :limit passengers after :afterId that predate the
+	// window columns and whose booking has one; returns their ids, so each row is looked at once per pass
+	@Query(value = """
+			WITH batch AS (
+			    SELECT p2.id,
+			           b2.departure_date + b2.departure_time AS departure_at,
+			           b2.arrival_date + b2.arrival_time AS arrival_at
+			    FROM passenger p2 JOIN booking b2 ON b2.id = p2.booking_id
+			    WHERE p2.id > :afterId AND p2.departure_at IS NULL
+			      AND b2.departure_date IS NOT NULL AND b2.departure_time IS NOT NULL
+			      AND b2.arrival_date IS NOT NULL AND b2.arrival_time IS NOT NULL
+			    ORDER BY p2.id
+			    LIMIT :limit
+			), updated AS (
+			    UPDATE passenger p
+			    SET departure_at = batch.departure_at, arrival_at = batch.arrival_at
+			    FROM batch
+			    WHERE p.id = batch.id
+			    RETURNING p.id
+			)
+			SELECT id FROM updated""",
+			nativeQuery = true)
+	List<Long> backfillTravelWindows(@Param("afterId") long afterId, @Param("limit") int limit);
 }
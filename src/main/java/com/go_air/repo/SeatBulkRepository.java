@@ -0,0 +1,15 @@
+package com.go_air.repo;
+
+import com.go_air.entity.Seat;
+
+import java.util.stream.Stream;
+
+// Bulk writes that bypass the persistence context, mixed into SeatRepository
+public interface SeatBulkRepository {
+
+	/**
+	 * Streams new seats (ids are left to the database) into the seats table with one
+	 * PostgreSQL COPY, inside the current transaction. Returns the number of rows written.
+	 */
+	long copySeats(Stream<Seat> seats);
+}
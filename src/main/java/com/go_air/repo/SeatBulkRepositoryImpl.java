@@ -0,0 +1,91 @@
+package com.go_air.repo;
+
+import com.go_air.entity.Seat;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+
+public class SeatBulkRepositoryImpl implements SeatBulkRepository {
+
+	private static final String COPY_SEATS = """
+			COPY seats (flight_number, seat_number, row_number, column_label,
+			            seat_type, seat_position, seat_status, travel_class)
+			FROM STDIN""";
+
+	// Rows are buffered and sent in chunks of about this many bytes
+	private static final int CHUNK_SIZE = 64 * 1024;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Override
+	public long copySeats(Stream<Seat> seats) {
+		// The transaction's own connection, so the rows commit or roll back with it
+		Connection connection = DataSourceUtils.getConnection(dataSource);
+		try {
+			CopyIn copy = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SEATS);
+			try {
+				StringBuilder chunk = new StringBuilder(CHUNK_SIZE + 256);
+				Iterator<Seat> it = seats.iterator();
+				while (it.hasNext()) {
+					appendRow(chunk, it.next());
+					if (chunk.length() >= CHUNK_SIZE) write(copy, chunk);
+				}
+				write(copy, chunk);
+				return copy.endCopy();
+			} finally {
+				if (copy.isActive()) copy.cancelCopy();
+			}
+		} catch (SQLException e) {
+			throw new UncategorizedSQLException("COPY seats", COPY_SEATS, e);
+		} finally {
+			DataSourceUtils.releaseConnection(connection, dataSource);
+		}
+	}
+
+	private static void write(CopyIn copy, StringBuilder chunk) throws SQLException {
+		if (chunk.isEmpty()) return;
+		byte[] bytes = chunk.toString().getBytes(StandardCharsets.UTF_8);
+		copy.writeToCopy(bytes, 0, bytes.length);
+		chunk.setLength(0);
+	}
+
+	// One line of COPY text format: tab-separated, \N for null
+	private static void appendRow(StringBuilder row, Seat seat) {
+		appendField(row, seat.getFlight().getFlightNumber()).append('\t');
+		appendField(row, seat.getSeatNumber()).append('\t');
+		row.append(seat.getRowNumber()).append('\t');
+		appendField(row, seat.getColumnLabel()).append('\t');
+		appendField(row, seat.getSeatType()).append('\t');
+		appendField(row, seat.getSeatPosition()).append('\t');
+		appendField(row, seat.getSeatStatus()).append('\t');
+		appendField(row, seat.getTravelClass()).append('\n');
+	}
+
+	private static StringBuilder appendField(StringBuilder row, Object value) {
+		if (value == null) return row.append("\\N");
+		String text = (value instanceof Enum<?> e) ? e.name() : value.toString();
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			switch (c) {
+				case '\\' -> row.append("\\\\");
+				case '\t' -> row.append("\\t");
+				case '\n' -> row.append("\\n");
+				case '\r' -> row.append("\\r");
+				default -> row.append(c);
+			}
+		}
+		return row;
+	}
+}
@@ -2,19 +2,91 @@ package com.go_air.repo;
 
 import com.go_air.entity.Seat;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
-public interface SeatRepository extends JpaRepository<Seat, Long> {
+public interface SeatRepository extends JpaRepository<Seat, Long>, SeatBulkRepository {
 	
 	@Query("SELECT s FROM Seat s WHERE s.flight.flightNumber = :flightNumber ORDER BY s.rowNumber, s.columnLabel")
 	List<Seat> findSeatsByFlightNumber(@Param("flightNumber") String flightNumber);
 
 	Optional<Seat> findByFlight_FlightNumberAndSeatNumber(String flightNumber, String seatNumber);
 
+	@Query("SELECT DISTINCT s.flight.flightNumber FROM Seat s WHERE s.flight.flightNumber IN :flightNumbers")
+	List<String> findFlightNumbersWithSeats(@Param("flightNumbers") Collection<String> flightNumbers);
+
+	// Every seat of the flights back to AVAILABLE in one statement, except held seats: their
+	// booking already took inventory for them, which its payment or the lapse sweep settles
+	@Modifying
+	@Query(value = """
+			UPDATE seats SET seat_status = 'AVAILABLE', hold_expires_at = NULL, held_by = NULL
+			WHERE flight_number IN (:flightNumbers) AND seat_status <> 'RESERVED'""",
+			nativeQuery = true)
+	int resetSeats(@Param("flightNumbers") Collection<String> flightNumbers);
+
+	// Seat map columns only, no entities: [id, row, column label, type, position, status, class]
+	@Query("""
+			SELECT s.id, s.rowNumber, s.columnLabel, s.seatType, s.seatPosition, s.seatStatus, s.travelClass
+			FROM Seat s WHERE s.flight.flightNumber = :flightNumber""")
+	List<Object[]> findSeatMapRows(@Param("flightNumber") String flightNumber);
+
+	// Conditional hold: only seats still AVAILABLE move, the caller compares the count. The flight's
+	// version moves with the inventory bookFlight takes next, in the same transaction
+	@Modifying
+	@Query(value = """
+			UPDATE seats SET seat_status = 'RESERVED', hold_expires_at = :expiresAt, held_by = :heldBy
+			WHERE flight_number = :flightNumber AND seat_number IN (:seatNumbers) AND seat_status = 'AVAILABLE'""",
+			nativeQuery = true)
+	int holdSeats(@Param("flightNumber") String flightNumber,
+	              @Param("seatNumbers") Collection<String> seatNumbers,
+	              @Param("expiresAt") LocalDateTime expiresAt,
+	              @Param("heldBy") String heldBy);
+
+	// Confirms paid seats in one statement, and moves the flight's version; a seat held by someone
+	// else or already occupied is not counted. Returns each confirmed seat's status before the update:
+	// AVAILABLE means its hold had lapsed, and the inventory it gave back must be taken again
+	@Query(value = """
+			WITH occupied AS (
+			    UPDATE seats s SET seat_status = 'OCCUPIED', hold_expires_at = NULL, held_by = NULL
+			    FROM (SELECT id, seat_status FROM seats
+			          WHERE flight_number = :flightNumber AND seat_number = ANY(:seatNumbers)
+			            AND (seat_status = 'AVAILABLE' OR (seat_status = 'RESERVED' AND held_by = ANY(:holders)))
+			          FOR UPDATE) before
+			    WHERE s.id = before.id
+			    RETURNING before.seat_status),
+			bumped AS (
+			    UPDATE flights SET version = version + 1
+			    WHERE flight_number = :flightNumber AND EXISTS (SELECT 1 FROM occupied))
+			SELECT seat_status FROM occupied""",
+			nativeQuery = true)
+	List<String> occupySeats(@Param("flightNumber") String flightNumber,
+	                         @Param("seatNumbers") String[] seatNumbers,
+	                         @Param("holders") String[] holders);
+
+	// Releases up to :limit lapsed holds, skipping rows another transaction has locked (a payment
+	// confirming them), and gives the seats back to their flights' available_seats (moving their
+	// version) in the same statement; returns [flight_number, seat_number] per seat
+	@Query(value = """
+			WITH released AS (
+			    UPDATE seats SET seat_status = 'AVAILABLE', hold_expires_at = NULL, held_by = NULL
+			    WHERE id IN (SELECT id FROM seats
+			                 WHERE seat_status = 'RESERVED' AND hold_expires_at <= :now
+			                 ORDER BY hold_expires_at LIMIT :limit
+			                 FOR UPDATE SKIP LOCKED)
+			    RETURNING flight_number, seat_number),
+			restocked AS (
+			    UPDATE flights f SET available_seats = f.available_seats + r.seats, version = f.version + 1
+			    FROM (SELECT flight_number, count(*) AS seats FROM released GROUP BY flight_number) r
+			    WHERE f.flight_number = r.flight_number)
+			SELECT flight_number, seat_number FROM released""",
+			nativeQuery = true)
+	List<Object[]> releaseExpiredHolds(@Param("now") LocalDateTime now, @Param("limit") int limit);
 
 }
@@ -16,24 +16,31 @@ import com.go_air.enums.SeatType;
 import com.go_air.enums.SpecialFareType;
 import com.go_air.enums.TravelClass;
 import com.go_air.enums.TripType;
+import com.go_air.event.FlightChangedEvent;
+import com.go_air.event.SeatsChangedEvent;
 import com.go_air.model.dtos.BookingResponseDTO;
+import com.go_air.model.dtos.FlightSummaryDTO;
 import com.go_air.repo.BookingRepository;
 import com.go_air.repo.FlightRepository;
 import com.go_air.repo.SeatRepository;
 import com.go_air.repo.UserRepository;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 
 @Service
 public class AdminService {
@@ -46,13 +53,34 @@ public class AdminService {
     private  BookingRepository bookingRepository;
     @Autowired
     private  UserRepository userRepository;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private FlightSearchCache searchCache;
+    @Autowired
+    private FareEngine fareEngine;
+    @Autowired
+    private SearchCoalescer coalescer;
+    @Autowired
+    private SeatMaps seatMaps;
+
+    // copy = one PostgreSQL COPY per call, entity = saveAll (one INSERT per seat)
+    @Value("${goair.seat-generation.mode:copy}")
+    private String seatGenerationMode;
+
+    private static final int MAX_PAGE_LIMIT = 500;
+
+    // Flights per lookup / reset / COPY round in generateSeatsForFlights
+    private static final int SEAT_GENERATION_SLICE = 1000;
     
 //    private static final Logger log = LoggerFactory.getLogger(AdminService.class);
 
 
     // Create flight
     public Flights createFlight(Flights flight) {
-        return flightRepo.save(flight);
+        Flights saved = flightRepo.save(flight);
+        eventPublisher.publishEvent(FlightChangedEvent.created(saved));
+        return saved;
     }
 
     // Read all flights
@@ -60,16 +88,27 @@ public class AdminService {
         return flightRepo.findAll();
     }
 
+    // Read all flights row by row off a cursor, for the streaming listing
+    @Transactional(readOnly = true)
+    public void streamAllFlights(Consumer<FlightSummaryDTO> sink) {
+        try (Stream<FlightSummaryDTO> flights = flightRepo.streamAllSummaries()) {
+            flights.forEach(sink);
+        }
+    }
+
     // Get flight by flight number
     public Flights getFlightByFlightNumber(String flightNumber) {
         return flightRepo.findByFlightNumber(flightNumber).orElse(null);
     }
 
  // Update flight by flight number
+    @Transactional
     public Flights updateFlightByFlightNumber(String flightNumber, Flights updatedFlight) {
         Flights flight = flightRepo.findByFlightNumber(flightNumber).orElse(null);
        
         if (flight != null) {
+            FlightSummaryDTO previous = FlightChangedEvent.snapshot(flight);
+
             // Update all fields except id and seats
             flight.setAirline(updatedFlight.getAirline());
             flight.setFlightNumber(updatedFlight.getFlightNumber());
@@ -90,7 +129,10 @@ public class AdminService {
             flight.setAvailableSeats(updatedFlight.getAvailableSeats());
             flight.setJourneyStatus(updatedFlight.getJourneyStatus());
             
-            return flightRepo.save(flight);
+            Flights saved = flightRepo.saveAndFlush(flight);
+            flightRepo.bumpVersions(List.of(saved.getFlightNumber()));
+            eventPublisher.publishEvent(FlightChangedEvent.updated(previous, saved));
+            return saved;
         }
 
         return null;
@@ -102,6 +144,7 @@ public class AdminService {
         Flights flight = flightRepo.findByFlightNumber(flightNumber).orElse(null);
         if (flight != null) {
             flightRepo.delete(flight);
+            eventPublisher.publishEvent(FlightChangedEvent.deleted(flight));
             return "Flight with number " + flightNumber + " deleted successfully.";
         }
         return "Flight with number " + flightNumber + " not found.";
@@ -190,57 +233,120 @@ public class AdminService {
             AircraftSize aircraftSize,
             SpecialFareType specialFareType,
             int page,
-            int limit
+            int limit,
+            String sortBy,
+            Long afterId,
+            Integer afterPrice,
+            boolean facets,
+            int priceBucketSize
     ) {
         if (page < 0) page = 0;
         if (limit <= 0) limit = 5;
+        if (limit > MAX_PAGE_LIMIT) limit = MAX_PAGE_LIMIT;
 
-        // Convert airlines list → comma-separated string
-        String airlinesText = (airlines != null && !airlines.isEmpty())
-                ? String.join(",", airlines)
-                : null;
-
-        String bookingTypeStr = (bookingType != null) ? bookingType.name() : null;
-        String departureTypeStr = (departureType != null) ? departureType.name() : null;
-        String aircraftSizeStr = (aircraftSize != null) ? aircraftSize.name() : null;
-
-        List<Flights> flights = flightRepo.searchFlightsByPaginationAndFilters(
-                airlinesText,
-                (sourceAirport != null && !sourceAirport.isBlank()) ? sourceAirport.trim() : null,
-                (destinationAirport != null && !destinationAirport.isBlank()) ? destinationAirport.trim() : null,
-                departureDate,
-                stop,
-                bookingTypeStr,
-                departureTypeStr,
-                minPrice,
-                maxPrice,
-                aircraftSizeStr
-        );
+        boolean sortByPrice = "price".equalsIgnoreCase(sortBy);
+        if (sortBy != null && !sortByPrice && !"id".equalsIgnoreCase(sortBy)) {
+            throw new RuntimeException("Unsupported sortBy: " + sortBy + " (allowed: id, price)");
+        }
+        // A price cursor is the pair; half of it would silently restart at an OFFSET page
+        if (sortByPrice && (afterId == null) != (afterPrice == null)) {
+            throw new RuntimeException("afterId and afterPrice must be sent together when sortBy=price");
+        }
 
-        // Apply discount if special fare provided
-        if (specialFareType != null) {
-            flights.forEach(f -> f.setPrice(specialFareType.applyDiscount(f.getPrice())));
+        List<String> validAirlines = (airlines != null)
+                ? airlines.stream().map(String::trim).filter(a -> !a.isEmpty()).toList()
+                : List.of();
+        boolean allAirlines = validAirlines.isEmpty();
+
+        String source = (sourceAirport != null && !sourceAirport.isBlank()) ? sourceAirport.trim() : null;
+        String destination = (destinationAirport != null && !destinationAirport.isBlank()) ? destinationAirport.trim() : null;
+        LocalDate date = (departureDate != null && !departureDate.isBlank()) ? LocalDate.parse(departureDate.trim()) : null;
+
+        // Keyset mode when the client sends back the cursor of the previous page,
+        // otherwise a plain LIMIT/OFFSET page. Either way only one page leaves the DB.
+        boolean keyset = afterId != null;
+        List<FlightSummaryDTO> flights;
+        if (keyset && sortByPrice) {
+            flights = flightRepo.searchFlightsAfterPrice(
+                    allAirlines, validAirlines, source, destination, date, stop, bookingType, departureType,
+                    minPrice, maxPrice, aircraftSize, afterPrice, afterId, limit);
+        } else if (keyset) {
+            flights = flightRepo.searchFlightsAfterId(
+                    allAirlines, validAirlines, source, destination, date, stop, bookingType, departureType,
+                    minPrice, maxPrice, aircraftSize, afterId, limit);
+        } else if (sortByPrice) {
+            flights = flightRepo.searchFlightsByPriceWithPagination(
+                    allAirlines, validAirlines, source, destination, date, stop, bookingType, departureType,
+                    minPrice, maxPrice, aircraftSize, limit, (long) page * limit);
+        } else {
+            flights = flightRepo.searchFlightsByPaginationAndFilters(
+                    allAirlines, validAirlines, source, destination, date, stop, bookingType, departureType,
+                    minPrice, maxPrice, aircraftSize, limit, (long) page * limit);
         }
 
-        // Remove duplicates
-        flights = new ArrayList<>(new LinkedHashSet<>(flights));
+        // Cursor is taken before the discount so it matches the stored price
+        Map<String, Object> nextCursor = null;
+        if (flights.size() == limit) {
+            FlightSummaryDTO last = flights.get(flights.size() - 1);
+            nextCursor = new LinkedHashMap<>();
+            nextCursor.put("afterId", last.getId());
+            if (sortByPrice) nextCursor.put("afterPrice", last.getPrice());
+        }
 
-        // Pagination logic unchanged
-        int total = flights.size();
-        int fromIndex = Math.min(page * limit, total);
-        int toIndex = Math.min(fromIndex + limit, total);
+        // Special fare prices come from the fare matrices, on new summaries only
+        if (specialFareType != null) {
+            flights = flights.stream()
+                    .map(f -> f.withFares(fareEngine.forFlight(f), specialFareType))
+                    .toList();
+        }
+
+        // Without any filter the planner estimate is enough, otherwise a COUNT on the same predicates
+        boolean unfiltered = allAirlines && source == null && destination == null && date == null
+                && stop == null && bookingType == null && departureType == null
+                && minPrice == null && maxPrice == null && aircraftSize == null;
+        Long estimate = unfiltered ? flightRepo.estimateFlightCount() : null;
+        boolean estimated = estimate != null && estimate >= 0;
+        long total = estimated
+                ? estimate
+                : flightRepo.countFlightsByFilters(
+                        allAirlines, validAirlines, source, destination, date, stop, bookingType, departureType,
+                        minPrice, maxPrice, aircraftSize);
 
         Map<String, Object> response = new LinkedHashMap<>();
         response.put("totalElements", total);
-        response.put("page", page);
+        response.put("totalEstimated", estimated);
+        response.put("page", keyset ? null : page);
         response.put("limit", limit);
-        response.put("flights", flights.subList(fromIndex, toIndex));
+        response.put("sortBy", sortByPrice ? "price" : "id");
+        response.put("nextCursor", nextCursor);
+        response.put("flights", flights);
+
+        // Facets cover every match, not just this page, so they come from one grouped query
+        if (facets) {
+            if (priceBucketSize <= 0) throw new RuntimeException("Price bucket size must be positive");
+            List<Object[]> rows = flightRepo.countFacetsByFilters(
+                    String.join(",", validAirlines), source, destination, date, stop,
+                    bookingType != null ? bookingType.name() : null,
+                    departureType != null ? departureType.name() : null,
+                    minPrice, maxPrice,
+                    aircraftSize != null ? aircraftSize.name() : null,
+                    specialFareType != null ? specialFareType.getDiscount() : 0,
+                    priceBucketSize);
+            response.put("facets", FlightFacets.fromGroupedRows(rows, priceBucketSize));
+        }
 
         return response;
     }
 
 
 
+    // Hit / miss / eviction counters of the user search cache, plus coalesced in-flight loads
+    public Map<String, Object> getSearchCacheStats() {
+        Map<String, Object> stats = searchCache.stats();
+        stats.put("coalescing", coalescer.stats());
+        return stats;
+    }
+
     // Extra Method For Experimantation
     public Map<String, Object> getAllFlightsPaginated(int page, int limit) {
         List<Flights> allFlights = flightRepo.findAll(); // assuming flightsRepository exists
@@ -268,66 +374,96 @@ public class AdminService {
         Flights flight = flightRepo.findByFlightNumber(flightNo)
                 .orElseThrow(() -> new IllegalArgumentException("Flight not found with flight number: " + flightNo));
 
-        // If journey is completed, don't allow seat creation or update
-        if (flight.getJourneyStatus() == JourneyStatus.COMPLETED) {
-            return SeatOperationStatus.COMPLETED_NO_CHANGE;
+        return generateSeats(List.of(flight)).get(flight.getFlightNumber());
+    }
+
+    // Seats for many flights in one call, per slice of flights: one query to find which
+    // already have seats, one UPDATE to reset those and one COPY for all the new seats
+    @Transactional
+    public Map<String, SeatOperationStatus> generateSeatsForFlights(List<String> flightNumbers) {
+        Map<String, SeatOperationStatus> result = new LinkedHashMap<>();
+        List<String> distinct = flightNumbers.stream().distinct().toList();
+        for (int from = 0; from < distinct.size(); from += SEAT_GENERATION_SLICE) {
+            List<String> slice = distinct.subList(from, Math.min(from + SEAT_GENERATION_SLICE, distinct.size()));
+            slice.forEach(flightNo -> result.put(flightNo, SeatOperationStatus.FLIGHT_NOT_FOUND));
+            result.putAll(generateSeats(flightRepo.findByFlightNumberIn(slice)));
         }
+        return result;
+    }
 
-        List<Seat> existingSeats = seatRepository.findSeatsByFlightNumber(flightNo);
-
-        if (existingSeats.isEmpty()) {
-            // ✅ Create new seats
-            int totalSeats = flight.getAvailableSeats();
-            AircraftSize size = flight.getAircraftSize();
-
-            int columns = getColumnsByAircraftSize(size);  // seats per row
-            int rows = (int) Math.ceil((double) totalSeats / columns);
-
-            List<Seat> seats = new ArrayList<>();
-            char[] seatLabels = generateSeatLabels(columns);
-
-            for (int row = 1; row <= rows; row++) {
-                for (int col = 0; col < columns; col++) {
-                    String columnLabel = String.valueOf(seatLabels[col]);
-                    String seatNumber = row + columnLabel;
-
-                    Seat seat = Seat.builder()
-                            .seatNumber(seatNumber)
-                            .rowNumber(row)
-                            .columnLabel(columnLabel)
-                            .seatPosition(getSeatPosition(col, columns))
-                            .seatType(getSeatType(col, columns))
-                            .seatStatus(SeatStatus.AVAILABLE)
-                            .travelClass(TravelClass.ECONOMY)
-                            .flight(flight)
-                            .build();
-
-                    seats.add(seat);
-                }
+    private Map<String, SeatOperationStatus> generateSeats(List<Flights> flights) {
+        Map<String, SeatOperationStatus> result = new LinkedHashMap<>();
+        List<Flights> open = new ArrayList<>();
+        for (Flights flight : flights) {
+            // If journey is completed, don't allow seat creation or update
+            if (flight.getJourneyStatus() == JourneyStatus.COMPLETED) {
+                result.put(flight.getFlightNumber(), SeatOperationStatus.COMPLETED_NO_CHANGE);
+            } else {
+                open.add(flight);
             }
+        }
+        if (open.isEmpty()) return result;
 
-            seatRepository.saveAll(seats);
-            return SeatOperationStatus.CREATED;
+        Set<String> withSeats = new HashSet<>(seatRepository.findFlightNumbersWithSeats(
+                open.stream().map(Flights::getFlightNumber).toList()));
 
-        } else {
-            // ✅ Seats already exist — only update their status
-            for (Seat seat : existingSeats) {
-                seat.setSeatStatus(SeatStatus.AVAILABLE);
-            }
-            seatRepository.saveAll(existingSeats);
-            return SeatOperationStatus.UPDATED;
+        // ✅ Seats already exist — only update their status
+        if (!withSeats.isEmpty()) {
+            seatRepository.resetSeats(withSeats);
         }
-    }
 
+        // ✅ Create new seats
+        List<Flights> toCreate = open.stream()
+                .filter(f -> !withSeats.contains(f.getFlightNumber()))
+                .toList();
+        if (!toCreate.isEmpty()) {
+            Stream<Seat> seats = toCreate.stream().flatMap(this::buildSeats);
+            if ("entity".equalsIgnoreCase(seatGenerationMode)) {
+                seatRepository.saveAll(seats.toList());
+            } else {
+                seatRepository.copySeats(seats);
+            }
+        }
 
+        flightRepo.bumpVersions(open.stream().map(Flights::getFlightNumber).toList());
+        for (Flights flight : open) {
+            String flightNo = flight.getFlightNumber();
+            result.put(flightNo, withSeats.contains(flightNo) ? SeatOperationStatus.UPDATED : SeatOperationStatus.CREATED);
+            eventPublisher.publishEvent(SeatsChangedEvent.regenerated(flightNo));
+        }
+        return result;
+    }
 
-    private int getColumnsByAircraftSize(AircraftSize size) {
-        return switch (size) {
-            case LIGHT -> 4;   // 2 seats per side (A-B / C-D)
-            case MEDIUM -> 6;  // 3 seats per side (A-B-C / D-E-F)
-            case LARGE -> 8;   // 4 per side (A-B-C-D / E-F-G-H)
-            case JUMBO -> 10;  // e.g., 3-4-3 layout (A-B-C / D-E-F-G / H-J-K)
-        };
+    private Stream<Seat> buildSeats(Flights flight) {
+        int totalSeats = flight.getAvailableSeats();
+        AircraftSize size = flight.getAircraftSize();
+
+        int columns = size.getSeatsPerRow();
+        int rows = (int) Math.ceil((double) totalSeats / columns);
+
+        List<Seat> seats = new ArrayList<>(rows * columns);
+        char[] seatLabels = generateSeatLabels(columns);
+
+        for (int row = 1; row <= rows; row++) {
+            for (int col = 0; col < columns; col++) {
+                String columnLabel = String.valueOf(seatLabels[col]);
+                String seatNumber = row + columnLabel;
+
+                Seat seat = Seat.builder()
+                        .seatNumber(seatNumber)
+                        .rowNumber(row)
+                        .columnLabel(columnLabel)
+                        .seatPosition(getSeatPosition(col, columns))
+                        .seatType(getSeatType(col, columns))
+                        .seatStatus(SeatStatus.AVAILABLE)
+                        .travelClass(TravelClass.ECONOMY)
+                        .flight(flight)
+                        .build();
+
+                seats.add(seat);
+            }
+        }
+        return seats.stream();
     }
 
     private char[] generateSeatLabels(int columns) {
@@ -385,6 +521,7 @@ public class AdminService {
         List<Flights> flights = flightRepo.findAll();
 
         LocalDateTime now = LocalDateTime.now();
+        List<String> changed = new ArrayList<>();
 
         for (Flights flight : flights) {
             LocalDateTime departure = LocalDateTime.of(flight.getDepartureDate(), flight.getDepartureTime());
@@ -400,63 +537,58 @@ public class AdminService {
             }
 
             if (flight.getJourneyStatus() != currentStatus) {
+                FlightSummaryDTO previous = FlightChangedEvent.snapshot(flight);
                 flight.setJourneyStatus(currentStatus);
                 flightRepo.save(flight);
+                changed.add(flight.getFlightNumber());
+                eventPublisher.publishEvent(FlightChangedEvent.updated(previous, flight));
             }
         }
+        if (!changed.isEmpty()) flightRepo.bumpVersions(changed);
     }
     
     /* Experimental Code */
     public String getSeatLayoutText(String flightNumber) {
-        Flights flight = flightRepo.findAll().stream()
-                .filter(f -> f.getFlightNumber().equalsIgnoreCase(flightNumber))
-                .findFirst()
+        Flights flight = flightRepo.findByFlightNumber(flightNumber)
                 .orElseThrow(() -> new IllegalArgumentException("Flight not found: " + flightNumber));
 
-        List<Seat> seats = seatRepository.findSeatsByFlightNumber(flightNumber);
-        if (seats.isEmpty()) {
+        // Drawn from the flight's bitset seat map, no Seat entities are loaded
+        SeatMap seatMap = seatMaps.get(flight.getFlightNumber());
+        if (seatMap == null) {
             return "No seats found for flight " + flightNumber;
         }
 
-        // Group seats by row
-        Map<Integer, List<Seat>> rows = seats.stream()
-                .collect(Collectors.groupingBy(Seat::getRowNumber, LinkedHashMap::new, Collectors.toList()));
-
         StringBuilder layout = new StringBuilder();
         layout.append("Flight: ").append(flightNumber).append("\n");
         layout.append("Aircraft Size: ").append(flight.getAircraftSize()).append("\n");
         layout.append("---------------------------------\n");
 
-        for (Map.Entry<Integer, List<Seat>> entry : rows.entrySet()) {
-            int rowNumber = entry.getKey();
-            List<Seat> rowSeats = entry.getValue().stream()
-                    .sorted(Comparator.comparing(Seat::getColumnLabel))
-                    .collect(Collectors.toList());
-
+        for (int rowNumber = 1; rowNumber <= seatMap.getRows(); rowNumber++) {
             layout.append(String.format("%-3d:  ", rowNumber));
-            layout.append(formatRow(rowSeats, flight.getAircraftSize()));
+            layout.append(formatRow(seatMap, rowNumber, flight.getAircraftSize()));
             layout.append("\n");
         }
 
         return layout.toString();
     }
 
-    private String formatRow(List<Seat> seats, AircraftSize size) {
-        // Sort seats by label
-        seats.sort(Comparator.comparing(Seat::getColumnLabel));
-
-        // Convert each seat to short text form
-        List<String> seatBlocks = seats.stream()
-                .map(s -> {
-                    String symbol = switch (s.getSeatStatus()) {
-                        case AVAILABLE -> "[ ]";
-                        case OCCUPIED -> "[X]";
-                        case RESERVED -> "[R]";
-                        case BLOCKED -> "[-]";
-                    };
-                    return symbol.replace(" ", s.getColumnLabel());
-                })
-                .collect(Collectors.toList());
+    private String formatRow(SeatMap seatMap, int rowNumber, AircraftSize size) {
+        // Convert each seat to short text form, column order; a gap where the row has no seat
+        List<String> seatBlocks = new ArrayList<>();
+        for (int column = 0; column < seatMap.getColumns(); column++) {
+            int cell = seatMap.cellAt(rowNumber, column);
+            if (cell < 0) {
+                seatBlocks.add("   ");
+                continue;
+            }
+            String symbol = switch (seatMap.statusAt(cell)) {
+                case AVAILABLE -> "[ ]";
+                case OCCUPIED -> "[X]";
+                case RESERVED -> "[R]";
+                case BLOCKED -> "[-]";
+            };
+            seatBlocks.add(symbol.replace(" ", String.valueOf((char) ('A' + column))));
+        }
 
         return switch (size) {
             case LIGHT -> seatBlocks.get(0) + seatBlocks.get(1) + "   " + seatBlocks.get(2) + seatBlocks.get(3);
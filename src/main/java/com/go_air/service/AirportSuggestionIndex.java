@@ -0,0 +1,169 @@
+package com.go_air.service;
+
+import com.go_air.event.FlightChangedEvent;
+import com.go_air.model.dtos.FlightSummaryDTO;
+import com.go_air.repo.FlightRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+
+/**
+ * Prefix lookup for the airport autocomplete, replacing the LIKE scans on every keystroke.
+ * <p>
+ * Source and destination airports are each kept as a sorted array of lower-cased names;
+ * a prefix is a binary search to the first candidate followed by a scan of the matching
+ * range, ranked by how many flights use the airport. Counts move with every flight
+ * change, the arrays are only rebuilt when an airport appears or disappears.
+ */
+@Service
+public class AirportSuggestionIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(AirportSuggestionIndex.class);
+
+    @Autowired
+    private FlightRepository flightRepository;
+
+    private final AirportDirectory sources = new AirportDirectory();
+    private final AirportDirectory destinations = new AirportDirectory();
+
+    private volatile boolean ready;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        try {
+            sources.reset(flightRepository.countFlightsBySourceAirport());
+            destinations.reset(flightRepository.countFlightsByDestinationAirport());
+            ready = true;
+            log.info("Airport suggestion index loaded: {} sources, {} destinations",
+                    sources.size(), destinations.size());
+        } catch (RuntimeException e) {
+            ready = false;
+            log.warn("Airport suggestion index not loaded, suggestions stay on SQL: {}", e.getMessage());
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Read models first, see FlightVersions
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE + 2)
+    public synchronized void onFlightChanged(FlightChangedEvent event) {
+        move(sources, event, FlightSummaryDTO::getSourceAirport);
+        move(destinations, event, FlightSummaryDTO::getDestinationAirport);
+    }
+
+    private void move(AirportDirectory directory, FlightChangedEvent event, Function<FlightSummaryDTO, String> airport) {
+        String before = event.previous() != null ? airport.apply(event.previous()) : null;
+        String after = event.current() != null ? airport.apply(event.current()) : null;
+        if (before != null && before.equals(after)) return;
+
+        if (before != null) directory.add(before, -1);
+        if (after != null) directory.add(after, 1);
+    }
+
+    public List<String> suggestSources(String prefix, int limit) {
+        return sources.suggest(prefix, limit);
+    }
+
+    public List<String> suggestDestinations(String prefix, int limit) {
+        return destinations.suggest(prefix, limit);
+    }
+
+    private static final class AirportDirectory {
+
+        // Immutable view swapped as a whole, readers take one consistent reference
+        private record Snapshot(String[] keys, String[] names) {}
+
+        private final Map<String, Integer> counts = new HashMap<>();
+        private volatile Map<String, Integer> rank = Map.of();
+        private volatile Snapshot snapshot = new Snapshot(new String[0], new String[0]);
+
+        void reset(List<Object[]> rows) {
+            counts.clear();
+            for (Object[] row : rows) {
+                if (row[0] != null) counts.put((String) row[0], ((Number) row[1]).intValue());
+            }
+            rebuild();
+        }
+
+        int size() {
+            return counts.size();
+        }
+
+        void add(String airport, int delta) {
+            int count = counts.getOrDefault(airport, 0) + delta;
+            boolean membershipChanged = (count <= 0) || !counts.containsKey(airport);
+            if (count <= 0) {
+                counts.remove(airport);
+            } else {
+                counts.put(airport, count);
+            }
+
+            if (membershipChanged) {
+                rebuild();
+            } else {
+                rank = Map.copyOf(counts);
+            }
+        }
+
+        private void rebuild() {
+            String[] names = counts.keySet().toArray(new String[0]);
+            Arrays.sort(names, Comparator.comparing((String n) -> n.toLowerCase(Locale.ROOT)).thenComparing(n -> n));
+            String[] keys = new String[names.length];
+            for (int i = 0; i < names.length; i++) keys[i] = names[i].toLowerCase(Locale.ROOT);
+
+            rank = Map.copyOf(counts);
+            snapshot = new Snapshot(keys, names);
+        }
+
+        List<String> suggest(String prefix, int limit) {
+            Snapshot view = snapshot;
+            Map<String, Integer> flightsPerAirport = rank;
+            String key = prefix.trim().toLowerCase(Locale.ROOT);
+
+            // Keep only the best `limit` matches: least popular on top so it is evicted first
+            Comparator<String> byPopularity = Comparator
+                    .comparing((String n) -> flightsPerAirport.getOrDefault(n, 0))
+                    .thenComparing(Comparator.<String>reverseOrder());
+            PriorityQueue<String> best = new PriorityQueue<>(byPopularity);
+
+            for (int i = lowerBound(view.keys(), key); i < view.keys().length && view.keys()[i].startsWith(key); i++) {
+                best.offer(view.names()[i]);
+                if (best.size() > limit) best.poll();
+            }
+
+            List<String> result = new ArrayList<>(best);
+            result.sort(byPopularity.reversed());
+            return result;
+        }
+
+        private int lowerBound(String[] keys, String key) {
+            int lo = 0, hi = keys.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (keys[mid].compareTo(key) < 0) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+    }
+}
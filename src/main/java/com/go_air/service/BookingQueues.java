@@ -0,0 +1,294 @@
+package com.go_air.service;
+
+import com.go_air.entity.Booking;
+import com.go_air.entity.Passenger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Entry point for {@link UserService#bookFlight}. With {@code goair.booking.mode=direct} (the
+ * default) every request books in its own transaction on the calling thread.
+ * <p>
+ * With {@code goair.booking.mode=queued} each flight gets a FIFO queue and a single writer:
+ * at most one thread of this node books a flight at a time, so its requests never wait on
+ * each other's seat or inventory row locks. The writer takes up to
+ * {@code goair.booking.queue.max-batch} queued requests and books them in one transaction,
+ * in arrival order. If one request fails (it asks for a taken seat, say), the transaction
+ * rolls back, that request gets its error and the rest of the batch is booked again without
+ * it; a failure on commit books the batch one request per transaction instead.
+ * The calling thread waits for its result; a request still queued after
+ * {@code goair.booking.queue.timeout-ms} is withdrawn and fails, one already being booked
+ * gets as long again before its caller gives up (its transaction may still commit).
+ * <p>
+ * Only bookings (the seat hold and the inventory taken for it) go through the queue. The
+ * other writes to a flight's seats and inventory do not: payment confirmation
+ * ({@link UserService#updateBookingAfterPayment}) turns a user's holds into occupied seats
+ * on every flight of the itinerary in one transaction, and the sweep of
+ * {@link SeatHolds#releaseExpired} returns lapsed holds of many flights at once; splitting
+ * either per flight would give up that atomicity. They run on their own threads and meet
+ * the writer, like bookings from other nodes, only in the conditional updates and row
+ * locks of {@link SeatHolds} and {@link FlightInventory}, so the queue removes lock waits
+ * between bookings but not between a booking and those writes.
+ */
+@Service
+public class BookingQueues {
+
+    private static final Logger log = LoggerFactory.getLogger(BookingQueues.class);
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    @Qualifier("bookingQueueExecutor")
+    private Executor bookingQueueExecutor;
+
+    @Value("${goair.booking.mode:direct}")
+    private String mode;
+
+    @Value("${goair.booking.queue.max-batch:32}")
+    private int maxBatch;
+
+    @Value("${goair.booking.queue.max-pending:1000}")
+    private int maxPending;
+
+    @Value("${goair.booking.queue.timeout-ms:10000}")
+    private long timeoutMs;
+
+    private final Map<String, FlightQueue> queues = new ConcurrentHashMap<>();
+
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedBookings = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder withdrawn = new LongAdder();
+
+    /**
+     * Books the legs of one itinerary in order. With more than one leg, the passengers of all
+     * legs are checked together first (see {@link UserService#checkPassengers}), so one
+     * conflicting leg fails the itinerary before any leg is booked.
+     */
+    public List<Booking> bookAll(String userId, List<Booking> bookingRequests) {
+        return bookAll(userId, bookingRequests, new ArrayList<>(bookingRequests.size()));
+    }
+
+    /**
+     * Like {@link #bookAll(String, List)}, skipping the legs already in {@code booked} (the
+     * ones an earlier, failed attempt at the same itinerary committed) and adding each leg
+     * to it as soon as it is booked.
+     */
+    public List<Booking> bookAll(String userId, List<Booking> bookingRequests, List<Booking> booked) {
+        List<Booking> itinerary = bookingRequests.size() > 1 ? bookingRequests : null;
+        for (Booking bookingRequest : bookingRequests.subList(booked.size(), bookingRequests.size())) {
+            booked.add(book(userId, bookingRequest, booked.isEmpty() ? itinerary : null));
+        }
+        return booked;
+    }
+
+    public Booking book(String userId, Booking bookingRequest) {
+        return book(userId, bookingRequest, null);
+    }
+
+    private Booking book(String userId, Booking bookingRequest, List<Booking> itinerary) {
+        if (!"queued".equalsIgnoreCase(mode) || bookingRequest.getFlightNumber() == null) {
+            if (itinerary != null) userService.checkPassengers(userId, itinerary);
+            return userService.bookFlight(userId, bookingRequest);
+        }
+
+        String flightNumber = bookingRequest.getFlightNumber();
+        FlightQueue queue = queues.computeIfAbsent(flightNumber, FlightQueue::new);
+        if (queue.size.incrementAndGet() > maxPending) {
+            queue.size.decrementAndGet();
+            rejected.increment();
+            throw new RuntimeException("Too many bookings pending on flight " + flightNumber + ", please try again");
+        }
+
+        // The itinerary check rides along with the first leg, so no database work happens on this thread
+        PendingBooking pending = new PendingBooking(userId, bookingRequest, itinerary);
+        queue.pending.add(pending);
+        queued.increment();
+        schedule(queue);
+        return await(pending, flightNumber);
+    }
+
+    public Map<String, Object> stats() {
+        int waiting = 0;
+        for (FlightQueue queue : queues.values()) waiting += queue.size.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", mode);
+        stats.put("maxBatch", maxBatch);
+        stats.put("flights", queues.size());
+        stats.put("waiting", waiting);
+        stats.put("queued", queued.sum());
+        stats.put("batches", batches.sum());
+        stats.put("avgBatchSize", batches.sum() == 0 ? 0 : (double) batchedBookings.sum() / batches.sum());
+        stats.put("fallbacks", fallbacks.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("withdrawn", withdrawn.sum());
+        return stats;
+    }
+
+    private Booking await(PendingBooking pending, String flightNumber) {
+        try {
+            try {
+                return pending.result.get(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (pending.started.compareAndSet(false, true)) {
+                    withdrawn.increment();
+                    throw new RuntimeException("Booking on flight " + flightNumber + " timed out, please try again");
+                }
+                // Already being booked: its transaction decides, so give it as long again
+                try {
+                    return pending.result.get(timeoutMs, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException stillRunning) {
+                    throw new RuntimeException("Booking on flight " + flightNumber
+                            + " is taking too long; check your bookings before trying again");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for booking", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void schedule(FlightQueue queue) {
+        if (queue.running.compareAndSet(false, true)) {
+            bookingQueueExecutor.execute(() -> drain(queue));
+        }
+    }
+
+    // One batch per turn, then the flight goes back to the executor so hot flights cannot starve the others
+    private void drain(FlightQueue queue) {
+        List<PendingBooking> batch = new ArrayList<>();
+        try {
+            PendingBooking next;
+            while (batch.size() < maxBatch && (next = queue.pending.poll()) != null) {
+                queue.size.decrementAndGet();
+                if (next.started.compareAndSet(false, true)) batch.add(next);
+            }
+            if (!batch.isEmpty()) book(new ArrayList<>(batch));
+        } catch (RuntimeException | Error e) {
+            log.error("Booking queue of flight {} failed", queue.flightNumber, e);
+            // Whatever the batch got to, no caller is left waiting on it
+            batch.forEach(pending -> pending.result.completeExceptionally(e));
+            if (e instanceof Error error) throw error;
+        } finally {
+            queue.running.set(false);
+            if (!queue.pending.isEmpty()) schedule(queue);
+        }
+    }
+
+    private void book(List<PendingBooking> batch) {
+        while (!batch.isEmpty()) {
+            int[] current = {-1};
+            List<Booking> saved;
+            try {
+                saved = transactionTemplate.execute(status -> {
+                    List<Booking> bookings = new ArrayList<>(batch.size());
+                    for (PendingBooking pending : batch) {
+                        current[0]++;
+                        bookings.add(bookOne(pending));
+                    }
+                    current[0] = -1;
+                    return bookings;
+                });
+            } catch (RuntimeException e) {
+                fallbacks.increment();
+                if (current[0] < 0) {
+                    // Failed on commit, not in any one request: book them one per transaction
+                    log.debug("Batch of {} bookings failed on commit ({}), booking them one by one",
+                            batch.size(), e.getMessage());
+                    batch.forEach(this::bookAlone);
+                    return;
+                }
+                // The failing request gets its error, the others go again without it
+                batch.remove(current[0]).result.completeExceptionally(e);
+                batch.forEach(pending -> reset(pending.request));
+                continue;
+            }
+
+            batches.increment();
+            batchedBookings.add(batch.size());
+            for (int i = 0; i < batch.size(); i++) batch.get(i).result.complete(saved.get(i));
+            return;
+        }
+    }
+
+    private void bookAlone(PendingBooking pending) {
+        try {
+            reset(pending.request);
+            pending.result.complete(bookOne(pending));
+        } catch (RuntimeException e) {
+            pending.result.completeExceptionally(e);
+        }
+    }
+
+    private Booking bookOne(PendingBooking pending) {
+        if (pending.itinerary != null) userService.checkPassengers(pending.userId, pending.itinerary);
+        return userService.bookFlight(pending.userId, pending.request);
+    }
+
+    // A rolled back batch leaves ids and a persistent collection behind; the retry must persist afresh
+    private static void reset(Booking booking) {
+        booking.setId(null);
+        if (booking.getPassengers() == null) return;
+        List<Passenger> passengers = new ArrayList<>(booking.getPassengers());
+        passengers.forEach(passenger -> passenger.setId(null));
+        booking.setPassengers(passengers);
+    }
+
+    private static final class FlightQueue {
+        final String flightNumber;
+        final Queue<PendingBooking> pending = new ConcurrentLinkedQueue<>();
+        final AtomicInteger size = new AtomicInteger();
+        final AtomicBoolean running = new AtomicBoolean();
+
+        FlightQueue(String flightNumber) {
+            this.flightNumber = flightNumber;
+        }
+    }
+
+    private static final class PendingBooking {
+        final String userId;
+        final Booking request;
+        final List<Booking> itinerary;
+        final CompletableFuture<Booking> result = new CompletableFuture<>();
+        // Set by whoever gets there first: the writer booking it, or the caller withdrawing it
+        final AtomicBoolean started = new AtomicBoolean();
+
+        PendingBooking(String userId, Booking request, List<Booking> itinerary) {
+            this.userId = userId;
+            this.request = request;
+            this.itinerary = itinerary;
+        }
+    }
+}
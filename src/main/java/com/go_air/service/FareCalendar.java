@@ -0,0 +1,174 @@
+package com.go_air.service;
+
+import com.go_air.enums.JourneyStatus;
+import com.go_air.enums.SpecialFareType;
+import com.go_air.enums.TravelClass;
+import com.go_air.event.FlightChangedEvent;
+import com.go_air.model.dtos.FareMatrix;
+import com.go_air.model.dtos.FlightSummaryDTO;
+import com.go_air.repo.FlightRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Lowest bookable fare per route and departure day, for the fare calendar.
+ * <p>
+ * Every route keeps a day-ordered map of its cheapest base fare, so a calendar of
+ * N days is one range view over that map. Bookable flights (scheduled, seats left)
+ * are kept per route/day ordered by price; a {@link FlightChangedEvent} moves one
+ * flight in or out of its set and refreshes the minimum of the days it touched, so
+ * creates, fare changes and a flight selling out are reflected right away.
+ * Class fares come from the {@link FareEngine} matrices; they grow with the base fare,
+ * which keeps the cheapest flight of a day the cheapest in every class.
+ */
+@Service
+public class FareCalendar {
+
+    private static final Logger log = LoggerFactory.getLogger(FareCalendar.class);
+
+    private static final Comparator<FlightSummaryDTO> BY_PRICE =
+            Comparator.comparing(FlightSummaryDTO::getPrice).thenComparing(FlightSummaryDTO::getId);
+
+    record RouteKey(String source, String destination) {}
+
+    record RouteDateKey(String source, String destination, LocalDate date) {
+
+        static RouteDateKey of(FlightSummaryDTO flight) {
+            return new RouteDateKey(flight.getSourceAirport(), flight.getDestinationAirport(), flight.getDepartureDate());
+        }
+
+        RouteKey route() {
+            return new RouteKey(source, destination);
+        }
+    }
+
+    @Autowired
+    private FlightRepository flightRepository;
+
+    @Autowired
+    private FareEngine fareEngine;
+
+    // Read side: route -> day -> lowest base fare
+    private final Map<RouteKey, NavigableMap<LocalDate, Integer>> lowestFares = new ConcurrentHashMap<>();
+
+    // Write side, only touched under the monitor
+    private final Map<RouteDateKey, TreeSet<FlightSummaryDTO>> bookable = new HashMap<>();
+    private final Map<Long, RouteDateKey> keyById = new HashMap<>();
+
+    private volatile boolean ready;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        try {
+            bookable.clear();
+            keyById.clear();
+            lowestFares.clear();
+            for (FlightSummaryDTO flight : flightRepository.findAllSummaries()) {
+                if (!isBookable(flight)) continue;
+                RouteDateKey key = RouteDateKey.of(flight);
+                bookable.computeIfAbsent(key, k -> new TreeSet<>(BY_PRICE)).add(flight);
+                keyById.put(flight.getId(), key);
+            }
+            bookable.keySet().forEach(this::refresh);
+
+            ready = true;
+            log.info("Fare calendar loaded: {} route/days on {} routes", bookable.size(), lowestFares.size());
+        } catch (RuntimeException e) {
+            ready = false;
+            log.warn("Fare calendar not loaded: {}", e.getMessage());
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Read models first, see FlightVersions
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE + 2)
+    public synchronized void onFlightChanged(FlightChangedEvent event) {
+        Long id = event.flightId();
+        RouteDateKey oldKey = keyById.remove(id);
+        if (oldKey != null) {
+            TreeSet<FlightSummaryDTO> flights = bookable.get(oldKey);
+            if (flights != null) {
+                flights.removeIf(f -> f.getId().equals(id));
+                if (flights.isEmpty()) bookable.remove(oldKey);
+            }
+            refresh(oldKey);
+        }
+
+        FlightSummaryDTO current = event.current();
+        if (current != null && isBookable(current)) {
+            RouteDateKey key = RouteDateKey.of(current);
+            bookable.computeIfAbsent(key, k -> new TreeSet<>(BY_PRICE)).add(current);
+            keyById.put(id, key);
+            refresh(key);
+        }
+    }
+
+    /**
+     * Lowest fare per day in [{@code from}, {@code from + days}) for every requested class
+     * ({@code travelClass} null means all of them). Days without a bookable flight are left out.
+     */
+    public Map<LocalDate, Map<TravelClass, Integer>> lookup(
+            String source, String destination, LocalDate from, int days, TravelClass travelClass) {
+
+        NavigableMap<LocalDate, Integer> fares = lowestFares.get(new RouteKey(source, destination));
+        Map<LocalDate, Map<TravelClass, Integer>> calendar = new LinkedHashMap<>();
+        if (fares == null) return calendar;
+
+        TravelClass[] classes = (travelClass != null) ? new TravelClass[] { travelClass } : TravelClass.values();
+        fares.subMap(from, true, from.plusDays(days), false).forEach((date, baseFare) -> {
+            FareMatrix matrix = fareEngine.forBaseFare(baseFare);
+            Map<TravelClass, Integer> byClass = new EnumMap<>(TravelClass.class);
+            for (TravelClass c : classes) {
+                byClass.put(c, matrix.fare(c, SpecialFareType.REGULAR));
+            }
+            calendar.put(date, byClass);
+        });
+        return calendar;
+    }
+
+    private void refresh(RouteDateKey key) {
+        TreeSet<FlightSummaryDTO> flights = bookable.get(key);
+        if (flights == null || flights.isEmpty()) {
+            NavigableMap<LocalDate, Integer> fares = lowestFares.get(key.route());
+            if (fares != null) {
+                fares.remove(key.date());
+                if (fares.isEmpty()) lowestFares.remove(key.route());
+            }
+            return;
+        }
+        lowestFares.computeIfAbsent(key.route(), k -> new ConcurrentSkipListMap<>())
+                .put(key.date(), flights.first().getPrice());
+    }
+
+    private boolean isBookable(FlightSummaryDTO flight) {
+        return flight.getPrice() != null
+                && flight.getSourceAirport() != null
+                && flight.getDestinationAirport() != null
+                && flight.getDepartureDate() != null
+                && flight.getAvailableSeats() > 0
+                && flight.getJourneyStatus() == JourneyStatus.SCHEDULED;
+    }
+}
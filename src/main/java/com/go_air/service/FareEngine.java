@@ -0,0 +1,40 @@
+package com.go_air.service;
+
+import com.go_air.entity.Flights;
+import com.go_air.model.dtos.FareMatrix;
+import com.go_air.model.dtos.FlightSummaryDTO;
+
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cached {@link FareMatrix} per base fare, the single source of prices for search and booking.
+ * <p>
+ * A matrix only depends on the base fare, so flights with the same fare share one instance
+ * and a lookup is a map read. A fare gets its matrix on first lookup, which costs less than
+ * reading the flights to build them ahead of time.
+ */
+@Service
+public class FareEngine {
+
+    private final Map<Integer, FareMatrix> byBaseFare = new ConcurrentHashMap<>();
+
+    public FareMatrix forFlight(FlightSummaryDTO flight) {
+        return forFlight(flight.getId(), flight.getPrice());
+    }
+
+    public FareMatrix forFlight(Flights flight) {
+        return forFlight(flight.getId(), flight.getPrice());
+    }
+
+    private FareMatrix forFlight(Long id, Integer price) {
+        if (price == null) throw new RuntimeException("Flight " + id + " has no fare");
+        return forBaseFare(price);
+    }
+
+    public FareMatrix forBaseFare(int baseFare) {
+        return byBaseFare.computeIfAbsent(baseFare, FareMatrix::of);
+    }
+}
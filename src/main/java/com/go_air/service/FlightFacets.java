@@ -0,0 +1,119 @@
+package com.go_air.service;
+
+import com.go_air.model.dtos.FlightFacetsDTO;
+import com.go_air.model.dtos.FlightSummaryDTO;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Facet counts and price histogram of a search result.
+ * <p>
+ * Either folded from the result list in one pass ({@link #of}), or from the rows of the
+ * grouped facet query ({@link #fromGroupedRows}) when only a page of the result is loaded.
+ * Both produce the same counts for the same flights.
+ */
+final class FlightFacets {
+
+    // Facet names as returned in the first column of FlightRepository.countFacetsByFilters
+    static final String TOTAL = "total";
+    static final String STOP = "stop";
+    static final String BOOKING_TYPE = "bookingType";
+    static final String DEPARTURE_TYPE = "departureType";
+    static final String AIRLINE = "airline";
+    static final String AIRCRAFT_SIZE = "aircraftSize";
+    static final String PRICE_BUCKET = "priceBucket";
+
+    private final int bucketSize;
+
+    private long total;
+    private Integer minPrice;
+    private Integer maxPrice;
+    private final Map<String, Long> stops = new TreeMap<>();
+    private final Map<String, Long> bookingTypes = new TreeMap<>();
+    private final Map<String, Long> departureTypes = new TreeMap<>();
+    private final Map<String, Long> airlines = new TreeMap<>();
+    private final Map<String, Long> aircraftSizes = new TreeMap<>();
+    private final Map<Integer, Long> buckets = new TreeMap<>();
+
+    private FlightFacets(int bucketSize) {
+        if (bucketSize <= 0) throw new RuntimeException("Price bucket size must be positive");
+        this.bucketSize = bucketSize;
+    }
+
+    static FlightFacetsDTO of(Collection<FlightSummaryDTO> flights, int bucketSize) {
+        FlightFacets facets = new FlightFacets(bucketSize);
+        for (FlightSummaryDTO f : flights) {
+            facets.total++;
+            count(facets.stops, String.valueOf(f.getStop()), 1);
+            count(facets.bookingTypes, name(f.getBookingType()), 1);
+            count(facets.departureTypes, name(f.getDepartureType()), 1);
+            count(facets.airlines, f.getAirline(), 1);
+            count(facets.aircraftSizes, name(f.getAircraftSize()), 1);
+
+            Integer price = f.getPrice();
+            if (price == null) continue;
+            facets.minPrice = (facets.minPrice == null) ? price : Math.min(facets.minPrice, price);
+            facets.maxPrice = (facets.maxPrice == null) ? price : Math.max(facets.maxPrice, price);
+            facets.buckets.merge(Math.floorDiv(price, bucketSize), 1L, Long::sum);
+        }
+        return facets.toDto();
+    }
+
+    /** Rows are [facet, value, count, min price, max price], see the grouped facet query. */
+    static FlightFacetsDTO fromGroupedRows(List<Object[]> rows, int bucketSize) {
+        FlightFacets facets = new FlightFacets(bucketSize);
+        for (Object[] row : rows) {
+            String value = (String) row[1];
+            long count = ((Number) row[2]).longValue();
+            switch ((String) row[0]) {
+                case TOTAL -> {
+                    facets.total = count;
+                    facets.minPrice = (row[3] != null) ? ((Number) row[3]).intValue() : null;
+                    facets.maxPrice = (row[4] != null) ? ((Number) row[4]).intValue() : null;
+                }
+                case STOP -> count(facets.stops, value, count);
+                case BOOKING_TYPE -> count(facets.bookingTypes, value, count);
+                case DEPARTURE_TYPE -> count(facets.departureTypes, value, count);
+                case AIRLINE -> count(facets.airlines, value, count);
+                case AIRCRAFT_SIZE -> count(facets.aircraftSizes, value, count);
+                case PRICE_BUCKET -> {
+                    if (value != null) facets.buckets.merge(Integer.parseInt(value), count, Long::sum);
+                }
+                default -> { }
+            }
+        }
+        return facets.toDto();
+    }
+
+    private FlightFacetsDTO toDto() {
+        List<FlightFacetsDTO.PriceBucket> histogram = new ArrayList<>(buckets.size());
+        buckets.forEach((bucket, count) -> histogram.add(
+                new FlightFacetsDTO.PriceBucket(bucket * bucketSize, (bucket + 1) * bucketSize, count)));
+
+        return FlightFacetsDTO.builder()
+                .total(total)
+                .minPrice(minPrice)
+                .maxPrice(maxPrice)
+                .stops(stops)
+                .bookingTypes(bookingTypes)
+                .departureTypes(departureTypes)
+                .airlines(airlines)
+                .aircraftSizes(aircraftSizes)
+                .priceBucketSize(bucketSize)
+                .priceHistogram(histogram)
+                .build();
+    }
+
+    // Rows without a value are reported under "UNKNOWN" rather than dropped
+    private static void count(Map<String, Long> facet, String value, long count) {
+        facet.merge(value != null ? value : "UNKNOWN", count, Long::sum);
+    }
+
+    private static String name(Enum<?> value) {
+        return value != null ? value.name() : null;
+    }
+}
@@ -0,0 +1,155 @@
+package com.go_air.service;
+
+import com.go_air.event.FlightChangedEvent;
+import com.go_air.model.dtos.FlightSummaryDTO;
+import com.go_air.repo.FlightRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Seat inventory of flights ({@code available_seats}), changed only by one conditional
+ * UPDATE (see {@link FlightRepository#takeSeats}): the database subtracts and checks in the
+ * same statement, so concurrent bookings on any number of nodes neither lose updates nor
+ * oversell, and no row is read or locked ahead of the write.
+ * <p>
+ * A transient failure (deadlock, lock timeout) rolls back only the statement's savepoint
+ * and is retried a bounded number of times with a short jittered backoff. Callers should
+ * take inventory as late as possible in their transaction, since the row stays locked
+ * until it commits.
+ * <p>
+ * Inventory is taken once per seat, when a booking holds it ({@link SeatHolds#hold}), and
+ * given back when the hold lapses unpaid ({@link SeatHolds#releaseExpired}); paying for
+ * held seats leaves it alone.
+ */
+@Service
+public class FlightInventory {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightInventory.class);
+
+    @Autowired
+    private FlightRepository flightRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${goair.inventory.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${goair.inventory.retry-backoff-ms:10}")
+    private long retryBackoffMs;
+
+    private final LongAdder takes = new LongAdder();
+    private final LongAdder seatsTaken = new LongAdder();
+    private final LongAdder seatsReturned = new LongAdder();
+    private final LongAdder soldOut = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder updateNanos = new LongAdder();
+    private final AtomicLong maxUpdateNanos = new AtomicLong();
+
+    /**
+     * Takes {@code seats} from the flight's inventory and publishes the change; throws when
+     * fewer are left (nothing is taken then). Returns the seats left. Joins the caller's
+     * transaction, whose commit releases the row.
+     */
+    @Transactional
+    public int take(FlightSummaryDTO flight, int seats) {
+        String flightNumber = flight.getFlightNumber();
+        // Pending writes first, so the commit after this has little left to do
+        flightRepository.flush();
+
+        for (int attempt = 1; ; attempt++) {
+            long start = System.nanoTime();
+            OptionalInt left;
+            try {
+                left = flightRepository.takeSeats(flightNumber, seats);
+            } catch (ConcurrencyFailureException e) {
+                record(System.nanoTime() - start);
+                if (attempt >= maxAttempts) {
+                    failures.increment();
+                    throw e;
+                }
+                retries.increment();
+                log.warn("Inventory update for flight {} failed (attempt {} of {}), retrying: {}",
+                        flightNumber, attempt, maxAttempts, e.getMessage());
+                backoff(attempt);
+                continue;
+            }
+            record(System.nanoTime() - start);
+
+            if (left.isEmpty()) {
+                soldOut.increment();
+                throw new RuntimeException("Not enough seats left on flight " + flightNumber);
+            }
+            int available = left.getAsInt();
+            takes.increment();
+            seatsTaken.add(seats);
+            eventPublisher.publishEvent(new FlightChangedEvent(
+                    flight.toBuilder().availableSeats(available + seats).build(),
+                    flight.toBuilder().availableSeats(available).build()));
+            return available;
+        }
+    }
+
+    /**
+     * Publishes the inventory that a statement of the caller's transaction gave back, in seats
+     * per flight (see {@link com.go_air.repo.SeatRepository#releaseExpiredHolds}).
+     */
+    @Transactional
+    public void returned(Map<String, Integer> seatsByFlight) {
+        if (seatsByFlight.isEmpty()) return;
+        List<FlightSummaryDTO> flights = flightRepository.findSummariesByFlightNumbers(seatsByFlight.keySet());
+        for (FlightSummaryDTO flight : flights) {
+            int seats = seatsByFlight.get(flight.getFlightNumber());
+            seatsReturned.add(seats);
+            eventPublisher.publishEvent(new FlightChangedEvent(
+                    flight.toBuilder().availableSeats(flight.getAvailableSeats() - seats).build(), flight));
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long statements = takes.sum() + soldOut.sum() + retries.sum() + failures.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("takes", takes.sum());
+        stats.put("seatsTaken", seatsTaken.sum());
+        stats.put("seatsReturned", seatsReturned.sum());
+        stats.put("soldOut", soldOut.sum());
+        stats.put("retries", retries.sum());
+        stats.put("failures", failures.sum());
+        stats.put("avgUpdateMicros", statements == 0 ? 0 : updateNanos.sum() / statements / 1000);
+        stats.put("maxUpdateMicros", maxUpdateNanos.get() / 1000);
+        return stats;
+    }
+
+    // Time in the UPDATE, including any wait for another transaction's row lock
+    private void record(long nanos) {
+        updateNanos.add(nanos);
+        maxUpdateNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private void backoff(int attempt) {
+        long bound = retryBackoffMs * attempt;
+        if (bound <= 0) return;
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(bound / 2, bound + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying inventory update", e);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.go_air.service;
+
+import com.go_air.enums.AircraftSize;
+import com.go_air.enums.BookingType;
+import com.go_air.enums.DepartureType;
+import com.go_air.event.FlightChangedEvent;
+import com.go_air.model.dtos.FlightSummaryDTO;
+import com.go_air.repo.FlightRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process copy of the flights table keyed by (source, destination, departure date).
+ * <p>
+ * Every key holds an immutable array sorted by price, so a user search is a hash
+ * lookup, a binary search on the lower price bound and a short scan applying the
+ * remaining filters. Writers replace the array of the touched key (copy-on-write),
+ * readers never lock. The index is loaded once the application is ready and kept
+ * in sync through {@link FlightChangedEvent}; until then callers fall back to SQL.
+ */
+@Service
+public class FlightInventoryIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightInventoryIndex.class);
+
+    private static final FlightSummaryDTO[] EMPTY = new FlightSummaryDTO[0];
+
+    private static final Comparator<FlightSummaryDTO> BY_PRICE =
+            Comparator.comparing(FlightSummaryDTO::getPrice).thenComparing(FlightSummaryDTO::getId);
+
+    record RouteDateKey(String source, String destination, LocalDate date) {
+
+        static RouteDateKey of(FlightSummaryDTO flight) {
+            return new RouteDateKey(flight.getSourceAirport(), flight.getDestinationAirport(), flight.getDepartureDate());
+        }
+    }
+
+    @Autowired
+    private FlightRepository flightRepository;
+
+    @Value("${goair.search.index.enabled:true}")
+    private boolean enabled;
+
+    private final Map<RouteDateKey, FlightSummaryDTO[]> buckets = new ConcurrentHashMap<>();
+    private final Map<Long, RouteDateKey> keyById = new ConcurrentHashMap<>();
+
+    private volatile boolean ready;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        if (!enabled) return;
+
+        try {
+            Map<RouteDateKey, List<FlightSummaryDTO>> grouped = new HashMap<>();
+            for (FlightSummaryDTO flight : flightRepository.findSearchableSummaries()) {
+                grouped.computeIfAbsent(RouteDateKey.of(flight), k -> new ArrayList<>()).add(flight);
+            }
+
+            buckets.clear();
+            keyById.clear();
+            grouped.forEach((key, flights) -> {
+                FlightSummaryDTO[] sorted = flights.toArray(EMPTY);
+                Arrays.sort(sorted, BY_PRICE);
+                buckets.put(key, sorted);
+                for (FlightSummaryDTO f : sorted) keyById.put(f.getId(), key);
+            });
+
+            ready = true;
+            log.info("Flight inventory index loaded: {} flights in {} route/date keys", keyById.size(), buckets.size());
+        } catch (RuntimeException e) {
+            ready = false;
+            log.warn("Flight inventory index not loaded, searches stay on SQL: {}", e.getMessage());
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Runs after commit, or immediately when the write was not transactional; right after
+    // SeatMaps and before FlightSearchCache, so a search reloaded after the cache drops it reads the new bucket
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    public synchronized void onFlightChanged(FlightChangedEvent event) {
+        if (!enabled) return;
+
+        Long id = event.flightId();
+        RouteDateKey oldKey = keyById.remove(id);
+        if (oldKey != null) {
+            removeFromBucket(oldKey, id);
+        }
+
+        FlightSummaryDTO current = event.current();
+        if (current != null && indexable(current)) {
+            RouteDateKey key = RouteDateKey.of(current);
+            FlightSummaryDTO[] bucket = buckets.getOrDefault(key, EMPTY);
+            FlightSummaryDTO[] updated = Arrays.copyOf(bucket, bucket.length + 1);
+            int pos = Arrays.binarySearch(bucket, current, BY_PRICE);
+            int insertAt = pos >= 0 ? pos : -pos - 1;
+            System.arraycopy(bucket, insertAt, updated, insertAt + 1, bucket.length - insertAt);
+            updated[insertAt] = current;
+            buckets.put(key, updated);
+            keyById.put(id, key);
+        }
+    }
+
+    private void removeFromBucket(RouteDateKey key, Long id) {
+        FlightSummaryDTO[] bucket = buckets.get(key);
+        if (bucket == null) return;
+
+        FlightSummaryDTO[] updated = Arrays.stream(bucket)
+                .filter(f -> !f.getId().equals(id))
+                .toArray(FlightSummaryDTO[]::new);
+        if (updated.length == 0) {
+            buckets.remove(key);
+        } else {
+            buckets.put(key, updated);
+        }
+    }
+
+    /**
+     * Same semantics as {@code FlightRepository.findFlightsByFilters} for a fully
+     * specified route and date, ordered by price.
+     */
+    public List<FlightSummaryDTO> search(
+            List<String> airlines,
+            String sourceAirport,
+            String destinationAirport,
+            LocalDate departureDate,
+            Integer stop,
+            BookingType bookingType,
+            DepartureType departureType,
+            Integer minPrice,
+            Integer maxPrice,
+            Integer passengers,
+            AircraftSize aircraftSize
+    ) {
+        FlightSummaryDTO[] bucket = buckets.getOrDefault(
+                new RouteDateKey(sourceAirport, destinationAirport, departureDate), EMPTY);
+
+        List<FlightSummaryDTO> result = new ArrayList<>();
+        for (int i = (minPrice != null) ? lowerBound(bucket, minPrice) : 0; i < bucket.length; i++) {
+            FlightSummaryDTO f = bucket[i];
+            if (maxPrice != null && f.getPrice() > maxPrice) break;
+
+            if (airlines != null && !airlines.isEmpty() && !airlines.contains(f.getAirline())) continue;
+            if (stop != null && f.getStop() != stop) continue;
+            if (bookingType != null && f.getBookingType() != bookingType) continue;
+            if (departureType != null && f.getDepartureType() != departureType) continue;
+            if (aircraftSize != null && f.getAircraftSize() != aircraftSize) continue;
+            if (passengers != null && f.getAvailableSeats() < passengers) continue;
+
+            result.add(f);
+        }
+        return result;
+    }
+
+    // First position whose price is >= minPrice
+    private int lowerBound(FlightSummaryDTO[] bucket, int minPrice) {
+        int lo = 0, hi = bucket.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (bucket[mid].getPrice() < minPrice) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // Same rows as findSearchableSummaries: the SQL search compares every filtered column with
+    // COALESCE, so a row with a NULL in any of them is never returned (stop and available
+    // seats are never NULL in a summary)
+    private boolean indexable(FlightSummaryDTO flight) {
+        return flight.getPrice() != null
+                && flight.getSourceAirport() != null
+                && flight.getDestinationAirport() != null
+                && flight.getDepartureDate() != null
+                && flight.getBookingType() != null
+                && flight.getDepartureType() != null
+                && flight.getAircraftSize() != null;
+    }
+}
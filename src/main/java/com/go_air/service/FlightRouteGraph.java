@@ -0,0 +1,349 @@
+package com.go_air.service;
+
+import com.go_air.event.FlightChangedEvent;
+import com.go_air.model.dtos.FlightSummaryDTO;
+import com.go_air.repo.FlightRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Time-dependent route graph over the flights table, used for connecting itineraries.
+ * <p>
+ * Airports are the nodes and every flight is an edge that only exists at its departure
+ * time. Each airport keeps its departures sorted by departure minute, and each
+ * (source, destination) pair its own timetable, so the connections reachable from an
+ * arrival are a binary search on {@code arrival + minimum connection time} followed by a
+ * scan up to {@code arrival + maximum layover}. The search is a time-dependent shortest
+ * path: partial itineraries are settled by earliest arrival, at most two connections
+ * deep, the last hop only follows the direct timetable into the destination, and it
+ * stops once the requested number of itineraries has been settled. Arrays are copy-on-write like
+ * {@link FlightInventoryIndex}, readers never lock.
+ */
+@Service
+public class FlightRouteGraph {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightRouteGraph.class);
+
+    public static final int MAX_CONNECTIONS = 2;
+
+    private static final Leg[] EMPTY = new Leg[0];
+
+    private static final Comparator<Leg> BY_DEPARTURE =
+            Comparator.comparingLong(Leg::departure).thenComparing(leg -> leg.flight().getId());
+
+    // Times are minutes since the epoch of the local schedule time, the schedule has no zones
+    record Leg(FlightSummaryDTO flight, long departure, long arrival) {
+
+        static Leg of(FlightSummaryDTO flight) {
+            return new Leg(flight, minutes(departureOf(flight)), minutes(arrivalOf(flight)));
+        }
+    }
+
+    record RouteKey(String source, String destination) {}
+
+    /** One itinerary found by {@link #search}, legs in travel order. */
+    public record Itinerary(List<FlightSummaryDTO> flights, long departure, long arrival, int price) {
+
+        public int connections() {
+            return flights.size() - 1;
+        }
+    }
+
+    @Autowired
+    private FlightRepository flightRepository;
+
+    @Value("${goair.search.connections.enabled:true}")
+    private boolean enabled;
+
+    @Value("${goair.search.connections.min-connection-minutes:45}")
+    private int minConnectionMinutes;
+
+    @Value("${goair.search.connections.max-layover-minutes:360}")
+    private int maxLayoverMinutes;
+
+    private final Map<String, Leg[]> departuresByAirport = new ConcurrentHashMap<>();
+    private final Map<RouteKey, Leg[]> departuresByRoute = new ConcurrentHashMap<>();
+    private final Map<Long, Leg> legById = new ConcurrentHashMap<>();
+
+    private volatile boolean ready;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        if (!enabled) return;
+
+        try {
+            Map<String, List<Leg>> byAirport = new HashMap<>();
+            Map<RouteKey, List<Leg>> byRoute = new HashMap<>();
+            for (FlightSummaryDTO flight : flightRepository.findAllSummaries()) {
+                if (!routable(flight)) continue;
+                Leg leg = Leg.of(flight);
+                byAirport.computeIfAbsent(flight.getSourceAirport(), k -> new ArrayList<>()).add(leg);
+                byRoute.computeIfAbsent(routeOf(flight), k -> new ArrayList<>()).add(leg);
+                legById.put(flight.getId(), leg);
+            }
+
+            departuresByAirport.clear();
+            departuresByRoute.clear();
+            byAirport.forEach((airport, legs) -> departuresByAirport.put(airport, sorted(legs)));
+            byRoute.forEach((route, legs) -> departuresByRoute.put(route, sorted(legs)));
+
+            ready = true;
+            log.info("Flight route graph loaded: {} flights, {} airports, {} routes",
+                    legById.size(), departuresByAirport.size(), departuresByRoute.size());
+        } catch (RuntimeException e) {
+            ready = false;
+            log.warn("Flight route graph not loaded, connecting searches are unavailable: {}", e.getMessage());
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Read models first, see FlightVersions
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE + 2)
+    public synchronized void onFlightChanged(FlightChangedEvent event) {
+        if (!enabled) return;
+
+        Leg old = legById.remove(event.flightId());
+        if (old != null) {
+            Long id = old.flight().getId();
+            removeLeg(departuresByAirport, old.flight().getSourceAirport(), id);
+            removeLeg(departuresByRoute, routeOf(old.flight()), id);
+        }
+
+        FlightSummaryDTO current = event.current();
+        if (current != null && routable(current)) {
+            Leg leg = Leg.of(current);
+            insertLeg(departuresByAirport, current.getSourceAirport(), leg);
+            insertLeg(departuresByRoute, routeOf(current), leg);
+            legById.put(current.getId(), leg);
+        }
+    }
+
+    /**
+     * Itineraries from {@code source} to {@code destination} whose first flight departs on
+     * {@code date}, with up to {@code maxConnections} connections. Every flight must pass
+     * {@code legFilter} and the first one {@code firstLegFilter}; flights are priced with
+     * {@code fares} and the priced total must lie within [{@code minPrice}, {@code maxPrice}]
+     * when given. Ordered by arrival, then number of connections, then price; at most
+     * {@code limit}, all filters applied before the cut.
+     */
+    public List<Itinerary> search(
+            String source,
+            String destination,
+            LocalDate date,
+            int maxConnections,
+            Predicate<FlightSummaryDTO> legFilter,
+            Predicate<FlightSummaryDTO> firstLegFilter,
+            UnaryOperator<FlightSummaryDTO> fares,
+            Integer minPrice,
+            Integer maxPrice,
+            int limit
+    ) {
+        Search search = new Search(source, destination, Math.min(Math.max(maxConnections, 0), MAX_CONNECTIONS),
+                legFilter, fares, maxPrice);
+        search.relax(null, departuresByAirport.getOrDefault(source, EMPTY),
+                minutes(date.atStartOfDay()), minutes(date.plusDays(1).atStartOfDay()) - 1, firstLegFilter);
+
+        List<Itinerary> result = new ArrayList<>();
+        while (result.size() < limit) {
+            Itinerary itinerary = search.next();
+            if (itinerary == null) break;
+            if (minPrice == null || itinerary.price() >= minPrice) result.add(itinerary);
+        }
+        return result;
+    }
+
+    /**
+     * Time-dependent shortest-path search (Dijkstra over partial itineraries). Labels are
+     * settled in {@link #RANKING} order; a leg always arrives after the label it extends,
+     * so no later label can complete into an itinerary that ranks before a settled one, and
+     * the itineraries come out best first. The search stops as soon as the caller has
+     * enough of them.
+     */
+    private final class Search {
+
+        static final Comparator<Label> RANKING = Comparator
+                .comparingLong((Label label) -> label.leg().arrival())
+                .thenComparingInt(Label::connections)
+                .thenComparingInt(Label::price)
+                .thenComparingLong(Label::departure);
+
+        // A partial itinerary ending with leg, priced flights in travel order back through previous
+        record Label(Label previous, Leg leg, FlightSummaryDTO flight, int connections, int price, long departure) {
+
+            boolean visits(String airport) {
+                for (Label label = this; label != null; label = label.previous()) {
+                    if (label.flight().getSourceAirport().equals(airport)) return true;
+                }
+                return false;
+            }
+        }
+
+        final String source;
+        final String destination;
+        final int maxConnections;
+        final Predicate<FlightSummaryDTO> legFilter;
+        final UnaryOperator<FlightSummaryDTO> fares;
+        final Integer maxPrice;
+
+        final PriorityQueue<Label> frontier = new PriorityQueue<>(RANKING);
+        final Map<Long, FlightSummaryDTO> priced = new HashMap<>();
+
+        Search(String source, String destination, int maxConnections, Predicate<FlightSummaryDTO> legFilter,
+               UnaryOperator<FlightSummaryDTO> fares, Integer maxPrice) {
+            this.source = source;
+            this.destination = destination;
+            this.maxConnections = maxConnections;
+            this.legFilter = legFilter;
+            this.fares = fares;
+            this.maxPrice = maxPrice;
+        }
+
+        /** Next best itinerary, or null when there is none left. */
+        Itinerary next() {
+            Label label;
+            while ((label = frontier.poll()) != null) {
+                String airport = label.flight().getDestinationAirport();
+                if (airport.equals(destination)) return itinerary(label);
+                if (label.connections() == maxConnections) continue;
+
+                long earliest = label.leg().arrival() + minConnectionMinutes;
+                long latest = label.leg().arrival() + maxLayoverMinutes;
+                // Last hop: only the direct timetable into the destination matters
+                Leg[] timetable = (label.connections() + 1 == maxConnections)
+                        ? departuresByRoute.getOrDefault(new RouteKey(airport, destination), EMPTY)
+                        : departuresByAirport.getOrDefault(airport, EMPTY);
+                relax(label, timetable, earliest, latest, null);
+            }
+            return null;
+        }
+
+        /** Extends {@code from} (null: the trip start) by every leg of {@code timetable} departing within [earliest, latest]. */
+        void relax(Label from, Leg[] timetable, long earliest, long latest, Predicate<FlightSummaryDTO> filter) {
+            for (int i = lowerBound(timetable, earliest); i < timetable.length && timetable[i].departure() <= latest; i++) {
+                Leg leg = timetable[i];
+                String next = leg.flight().getDestinationAirport();
+                if (next.equals(source) || (from != null && from.visits(next))) continue;
+                if (!legFilter.test(leg.flight()) || (filter != null && !filter.test(leg.flight()))) continue;
+
+                FlightSummaryDTO flight = priced.computeIfAbsent(leg.flight().getId(), id -> fares.apply(leg.flight()));
+                int total = (from != null ? from.price() : 0) + flight.getPrice();
+                if (maxPrice != null && total > maxPrice) continue;
+
+                frontier.offer(new Label(from, leg, flight,
+                        from != null ? from.connections() + 1 : 0,
+                        total,
+                        from != null ? from.departure() : leg.departure()));
+            }
+        }
+
+        Itinerary itinerary(Label last) {
+            List<FlightSummaryDTO> flights = new ArrayList<>(last.connections() + 1);
+            for (Label label = last; label != null; label = label.previous()) flights.add(label.flight());
+            Collections.reverse(flights);
+            return new Itinerary(flights, last.departure(), last.leg().arrival(), last.price());
+        }
+    }
+
+    private <K> void insertLeg(Map<K, Leg[]> timetables, K key, Leg leg) {
+        timetables.put(key, inserted(timetables.getOrDefault(key, EMPTY), leg));
+    }
+
+    private <K> void removeLeg(Map<K, Leg[]> timetables, K key, Long id) {
+        Leg[] timetable = timetables.get(key);
+        if (timetable == null) return;
+
+        Leg[] updated = Arrays.stream(timetable)
+                .filter(leg -> !leg.flight().getId().equals(id))
+                .toArray(Leg[]::new);
+        if (updated.length == 0) {
+            timetables.remove(key);
+        } else {
+            timetables.put(key, updated);
+        }
+    }
+
+    private static Leg[] inserted(Leg[] timetable, Leg leg) {
+        Leg[] updated = Arrays.copyOf(timetable, timetable.length + 1);
+        int pos = Arrays.binarySearch(timetable, leg, BY_DEPARTURE);
+        int insertAt = pos >= 0 ? pos : -pos - 1;
+        System.arraycopy(timetable, insertAt, updated, insertAt + 1, timetable.length - insertAt);
+        updated[insertAt] = leg;
+        return updated;
+    }
+
+    private static Leg[] sorted(List<Leg> legs) {
+        Leg[] timetable = legs.toArray(EMPTY);
+        Arrays.sort(timetable, BY_DEPARTURE);
+        return timetable;
+    }
+
+    // First position departing at or after the given minute
+    private static int lowerBound(Leg[] timetable, long departure) {
+        int lo = 0, hi = timetable.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timetable[mid].departure() < departure) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private static RouteKey routeOf(FlightSummaryDTO flight) {
+        return new RouteKey(flight.getSourceAirport(), flight.getDestinationAirport());
+    }
+
+    private static long minutes(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    public static LocalDateTime departureOf(FlightSummaryDTO flight) {
+        return LocalDateTime.of(flight.getDepartureDate(), flight.getDepartureTime());
+    }
+
+    // Rows without an arrival fall back to the scheduled duration
+    public static LocalDateTime arrivalOf(FlightSummaryDTO flight) {
+        return (flight.getArrivalDate() != null && flight.getArrivalTime() != null)
+                ? LocalDateTime.of(flight.getArrivalDate(), flight.getArrivalTime())
+                : departureOf(flight).plusMinutes(flight.getDurationMinutes());
+    }
+
+    public static LocalDateTime toDateTime(long minutes) {
+        return LocalDateTime.ofEpochSecond(minutes * 60, 0, ZoneOffset.UTC);
+    }
+
+    private boolean routable(FlightSummaryDTO flight) {
+        return flight.getPrice() != null
+                && flight.getSourceAirport() != null
+                && flight.getDestinationAirport() != null
+                && flight.getDepartureDate() != null
+                && flight.getDepartureTime() != null;
+    }
+}
@@ -0,0 +1,271 @@
+package com.go_air.service;
+
+import com.go_air.enums.AircraftSize;
+import com.go_air.enums.BookingType;
+import com.go_air.enums.DepartureType;
+import com.go_air.event.FlightChangedEvent;
+import com.go_air.model.dtos.FlightSummaryDTO;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of user flight searches keyed by the normalized filter tuple.
+ * <p>
+ * Entries expire after a TTL and the least recently used one is evicted once the
+ * cache is full. Every {@link FlightChangedEvent} (admin writes and seat counts
+ * moved by bookings) drops the entries of the touched route/date, plus the
+ * entries searched without a full route/date that could contain the flight.
+ * A load that overlaps such an invalidation is returned but not stored.
+ */
+@Service
+public class FlightSearchCache {
+
+    public record SearchKey(
+            List<String> airlines,
+            String sourceAirport,
+            String destinationAirport,
+            LocalDate departureDate,
+            Integer stop,
+            BookingType bookingType,
+            DepartureType departureType,
+            Integer minPrice,
+            Integer maxPrice,
+            Integer passengers,
+            AircraftSize aircraftSize
+    ) {
+        public SearchKey {
+            airlines = (airlines == null) ? List.of() : airlines.stream().sorted().distinct().toList();
+        }
+
+        boolean hasRouteDate() {
+            return sourceAirport != null && destinationAirport != null && departureDate != null;
+        }
+
+        RouteDateKey routeDate() {
+            return new RouteDateKey(sourceAirport, destinationAirport, departureDate);
+        }
+
+        // Could a flight on this route/date be part of this (partially specified) search?
+        boolean covers(RouteDateKey route) {
+            return (sourceAirport == null || sourceAirport.equals(route.source()))
+                    && (destinationAirport == null || destinationAirport.equals(route.destination()))
+                    && (departureDate == null || departureDate.equals(route.date()));
+        }
+    }
+
+    private record RouteDateKey(String source, String destination, LocalDate date) {
+
+        static RouteDateKey of(FlightSummaryDTO flight) {
+            return new RouteDateKey(flight.getSourceAirport(), flight.getDestinationAirport(), flight.getDepartureDate());
+        }
+    }
+
+    private record Entry(List<FlightSummaryDTO> flights, long expiresAt) {}
+
+    @Value("${goair.search.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${goair.search.cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${goair.search.cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<SearchKey, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<RouteDateKey, Set<SearchKey>> keysByRouteDate = new HashMap<>();
+    private final Set<SearchKey> partialKeys = new HashSet<>();
+
+    // Bumped on every invalidation, per route/date and globally for partial searches
+    private final Map<RouteDateKey, Long> routeGenerations = new HashMap<>();
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Returns the cached result for the key or runs the loader and caches its result.
+     * The returned list is shared and unmodifiable.
+     */
+    public List<FlightSummaryDTO> getOrLoad(SearchKey key, Supplier<List<FlightSummaryDTO>> loader) {
+        if (!enabled) return loader.get();
+
+        long token;
+        synchronized (this) {
+            List<FlightSummaryDTO> cached = lookup(key);
+            if (cached != null) return cached;
+            token = generationOf(key);
+        }
+
+        List<FlightSummaryDTO> stored = List.copyOf(loader.get());
+        synchronized (this) {
+            store(key, token, stored);
+        }
+        return stored;
+    }
+
+    /**
+     * {@link #getOrLoad} for several keys at once: the loader gets the keys that missed, in
+     * order, and returns one result per key, so the misses can be loaded together.
+     */
+    public List<List<FlightSummaryDTO>> getOrLoadAll(
+            List<SearchKey> keys, Function<List<SearchKey>, List<List<FlightSummaryDTO>>> loader) {
+        if (!enabled) return loader.apply(keys);
+
+        List<List<FlightSummaryDTO>> results = new ArrayList<>(Collections.nCopies(keys.size(), null));
+        List<Integer> missed = new ArrayList<>();
+        List<Long> tokens = new ArrayList<>();
+        synchronized (this) {
+            for (int i = 0; i < keys.size(); i++) {
+                List<FlightSummaryDTO> cached = lookup(keys.get(i));
+                if (cached != null) {
+                    results.set(i, cached);
+                } else {
+                    missed.add(i);
+                    tokens.add(generationOf(keys.get(i)));
+                }
+            }
+        }
+        if (missed.isEmpty()) return results;
+
+        List<List<FlightSummaryDTO>> loaded = loader.apply(missed.stream().map(keys::get).toList());
+        synchronized (this) {
+            for (int j = 0; j < missed.size(); j++) {
+                int i = missed.get(j);
+                List<FlightSummaryDTO> stored = List.copyOf(loaded.get(j));
+                store(keys.get(i), tokens.get(j), stored);
+                results.set(i, stored);
+            }
+        }
+        return results;
+    }
+
+    // After the read models searches are loaded from (FlightInventoryIndex and the others),
+    // so nothing reloaded after an entry is dropped can still see the old flight
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.LOWEST_PRECEDENCE - 1)
+    public synchronized void onFlightChanged(FlightChangedEvent event) {
+        if (!enabled) return;
+
+        Set<RouteDateKey> routes = new HashSet<>();
+        if (event.previous() != null) routes.add(RouteDateKey.of(event.previous()));
+        if (event.current() != null) routes.add(RouteDateKey.of(event.current()));
+
+        generation++;
+        for (RouteDateKey route : routes) {
+            routeGenerations.merge(route, 1L, Long::sum);
+
+            Set<SearchKey> keys = keysByRouteDate.remove(route);
+            if (keys != null) {
+                keys.forEach(entries::remove);
+                invalidations.add(keys.size());
+            }
+
+            for (Iterator<SearchKey> it = partialKeys.iterator(); it.hasNext(); ) {
+                SearchKey key = it.next();
+                if (key.covers(route)) {
+                    it.remove();
+                    entries.remove(key);
+                    invalidations.increment();
+                }
+            }
+        }
+    }
+
+    public synchronized Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("size", entries.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlSeconds", ttlSeconds);
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.sum());
+        stats.put("hitRatio", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+        stats.put("evictions", evictions.sum());
+        stats.put("expirations", expirations.sum());
+        stats.put("invalidations", invalidations.sum());
+        return stats;
+    }
+
+    // A live entry, or null after counting the miss
+    private List<FlightSummaryDTO> lookup(SearchKey key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAt() - System.nanoTime() > 0) {
+            hits.increment();
+            return entry.flights();
+        }
+        if (entry != null) {
+            remove(key);
+            expirations.increment();
+        }
+        misses.increment();
+        return null;
+    }
+
+    // Stored only if no invalidation of the key happened since the token was taken
+    private void store(SearchKey key, long token, List<FlightSummaryDTO> flights) {
+        if (generationOf(key) != token) return;
+        remove(key);
+        entries.put(key, new Entry(flights, System.nanoTime() + TimeUnit.SECONDS.toNanos(ttlSeconds)));
+        if (key.hasRouteDate()) {
+            keysByRouteDate.computeIfAbsent(key.routeDate(), k -> new HashSet<>()).add(key);
+        } else {
+            partialKeys.add(key);
+        }
+        evictOverflow();
+    }
+
+    private long generationOf(SearchKey key) {
+        return key.hasRouteDate() ? routeGenerations.getOrDefault(key.routeDate(), 0L) : generation;
+    }
+
+    private void evictOverflow() {
+        Iterator<SearchKey> eldest = entries.keySet().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            SearchKey key = eldest.next();
+            eldest.remove();
+            unlink(key);
+            evictions.increment();
+        }
+    }
+
+    private void remove(SearchKey key) {
+        if (entries.remove(key) != null) unlink(key);
+    }
+
+    private void unlink(SearchKey key) {
+        if (!key.hasRouteDate()) {
+            partialKeys.remove(key);
+            return;
+        }
+        Set<SearchKey> keys = keysByRouteDate.get(key.routeDate());
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            keysByRouteDate.remove(key.routeDate());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.go_air.service;
+
+import com.go_air.event.FlightChangedEvent;
+import com.go_air.event.SeatsChangedEvent;
+import com.go_air.repo.FlightRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versions behind the ETags of flight detail, seat map and search responses.
+ * <p>
+ * A flight's tag is its id and the {@code version} column of its row, which every
+ * statement changing the row, its inventory or its seats moves in the same transaction.
+ * The tag is therefore the same on every node and changes for writes made anywhere, at
+ * the price of one indexed lookup per request. A deleted and re-created flight gets a new
+ * id, so its tags are never reused.
+ * <p>
+ * Search results come from this node's in-memory index and caches, which follow only this
+ * node's committed {@link FlightChangedEvent}s and {@link SeatsChangedEvent}s; their tag
+ * is a counter of those events, prefixed with a random id of this process so that a
+ * restart or another node never answers 304 to a tag it did not hand out.
+ * <p>
+ * Handlers must read the tag <em>before</em> loading the data: a change committing in
+ * between then yields newer data under an older tag, which only costs one extra 200. For
+ * the same reason the search counter moves only after every read model has applied the
+ * change; a newer tag never describes older results.
+ */
+@Service
+public class FlightVersions {
+
+    /** Persisted version of one flight; id 0 when there is no such flight. */
+    public record FlightVersion(long flightId, long version) {
+
+        /** Strong ETag of everything served for the flight (row and seats). */
+        public String etag() {
+            return "\"f" + flightId + "." + version + "\"";
+        }
+    }
+
+    @Autowired
+    private FlightRepository flightRepository;
+
+    private final String instance = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+
+    private final AtomicLong global = new AtomicLong();
+
+    // Last, after every read model a tagged response is built from (index, cache, calendar, ...)
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onFlightChanged(FlightChangedEvent event) {
+        global.incrementAndGet();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onSeatsChanged(SeatsChangedEvent event) {
+        global.incrementAndGet();
+    }
+
+    public FlightVersion flightVersion(String flightNumber) {
+        List<Object[]> rows = flightRepository.findVersionByFlightNumber(flightNumber);
+        if (rows.isEmpty()) return new FlightVersion(0, 0);
+        return new FlightVersion((Long) rows.get(0)[0], (Long) rows.get(0)[1]);
+    }
+
+    /** Strong ETag of everything served for one flight (row and seats). */
+    public String flightTag(String flightNumber) {
+        return flightVersion(flightNumber).etag();
+    }
+
+    /** Strong ETag of search results, which can depend on any flight. */
+    public String searchTag() {
+        return "\"" + instance + "-s" + global.get() + "\"";
+    }
+}
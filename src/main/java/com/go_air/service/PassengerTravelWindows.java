@@ -0,0 +1,72 @@
+package com.go_air.service;
+
+import com.go_air.repo.PassengerRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Fills the travel window of passengers booked before {@code departure_at} and
+ * {@code arrival_at} existed, so the passport overlap check (see
+ * {@code BookingRepository.findOverlappingPassports}) sees every booking; passengers
+ * booked since get their window from {@link UserService#bookFlight}.
+ * <p>
+ * A one-off job: it runs on its own thread after startup, so neither readiness nor a
+ * database error at boot depends on it, and walks the passengers once in id order, one
+ * transaction per {@code goair.passenger-window.backfill-batch-size} rows. Rows whose
+ * booking has no schedule cannot be filled and are passed over, not looked at again. A
+ * failed pass is logged and left to the next start. Once a pass reports nothing filled,
+ * {@code goair.passenger-window.backfill-enabled=false} skips it for good.
+ */
+@Service
+public class PassengerTravelWindows {
+
+    private static final Logger log = LoggerFactory.getLogger(PassengerTravelWindows.class);
+
+    @Autowired
+    private PassengerRepository passengerRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${goair.passenger-window.backfill-enabled:true}")
+    private boolean enabled;
+
+    @Value("${goair.passenger-window.backfill-batch-size:5000}")
+    private int batchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startBackfill() {
+        if (!enabled) return;
+
+        Thread thread = new Thread(this::backfill, "passenger-window-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void backfill() {
+        long total = 0;
+        long afterId = 0;
+        try {
+            while (true) {
+                long from = afterId;
+                List<Long> filled = transactionTemplate.execute(status -> passengerRepository.backfillTravelWindows(from, batchSize));
+                if (filled == null || filled.isEmpty()) break;
+                total += filled.size();
+                afterId = filled.stream().mapToLong(Long::longValue).max().getAsLong();
+            }
+            log.info("Filled the travel window of {} passengers{}", total,
+                    total == 0 ? "; set goair.passenger-window.backfill-enabled=false to skip this pass" : "");
+        } catch (RuntimeException e) {
+            log.warn("Travel window backfill stopped after {} passengers, the next start resumes it: {}", total, e.getMessage());
+        }
+    }
+}
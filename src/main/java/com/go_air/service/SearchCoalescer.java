@@ -0,0 +1,152 @@
+package com.go_air.service;
+
+import com.go_air.model.dtos.FlightSummaryDTO;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight deduplication of identical concurrent searches.
+ * <p>
+ * The first caller for a key runs the load and publishes it through a future; callers
+ * arriving with the same key while it is still running wait on that future instead of
+ * running their own query, and get the same (unmodifiable) result or the same failure.
+ * The key is released as soon as the load finishes, so nothing is cached here: a
+ * flash-sale stampede on one search costs one query, the next request after it runs a
+ * fresh one (or hits {@link FlightSearchCache} in front of this).
+ */
+@Service
+public class SearchCoalescer {
+
+    public record SuggestionKey(String type, String query, int limit) {}
+
+    @Value("${goair.search.coalescing.enabled:true}")
+    private boolean enabled;
+
+    private final Group<FlightSearchCache.SearchKey, List<FlightSummaryDTO>> flightSearches = new Group<>();
+    private final Group<SuggestionKey, List<String>> suggestions = new Group<>();
+
+    public List<FlightSummaryDTO> flights(FlightSearchCache.SearchKey key, Supplier<List<FlightSummaryDTO>> loader) {
+        return enabled ? flightSearches.run(key, () -> List.copyOf(loader.get())) : loader.get();
+    }
+
+    /**
+     * {@link #flights} for several keys at once: keys another caller is already loading are
+     * waited for, the rest go to {@code loader} together, which returns one result per key.
+     */
+    public List<List<FlightSummaryDTO>> flightsAll(
+            List<FlightSearchCache.SearchKey> keys,
+            Function<List<FlightSearchCache.SearchKey>, List<List<FlightSummaryDTO>>> loader) {
+        return enabled
+                ? flightSearches.runAll(keys, own -> loader.apply(own).stream().map(List::copyOf).toList())
+                : loader.apply(keys);
+    }
+
+    public List<String> suggestions(SuggestionKey key, Supplier<List<String>> loader) {
+        return enabled ? suggestions.run(key, () -> List.copyOf(loader.get())) : loader.get();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("flightSearches", flightSearches.stats());
+        stats.put("suggestions", suggestions.stats());
+        return stats;
+    }
+
+    private static final class Group<K, V> {
+
+        private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+        private final LongAdder loads = new LongAdder();
+        private final LongAdder shared = new LongAdder();
+
+        V run(K key, Supplier<V> loader) {
+            CompletableFuture<V> mine = new CompletableFuture<>();
+            CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+            if (running != null) {
+                shared.increment();
+                return await(running);
+            }
+
+            loads.increment();
+            try {
+                V value = loader.get();
+                mine.complete(value);
+                return value;
+            } catch (RuntimeException | Error e) {
+                mine.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, mine);
+            }
+        }
+
+        // Each caller completes the keys it leads before waiting on the others, so two
+        // overlapping batches never wait on each other
+        List<V> runAll(List<K> keys, Function<List<K>, List<V>> loader) {
+            List<CompletableFuture<V>> futures = new ArrayList<>(keys.size());
+            List<K> ownKeys = new ArrayList<>();
+            List<CompletableFuture<V>> own = new ArrayList<>();
+            for (K key : keys) {
+                CompletableFuture<V> mine = new CompletableFuture<>();
+                CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+                if (running != null) {
+                    shared.increment();
+                    futures.add(running);
+                } else {
+                    ownKeys.add(key);
+                    own.add(mine);
+                    futures.add(mine);
+                }
+            }
+
+            if (!ownKeys.isEmpty()) {
+                loads.increment();
+                try {
+                    List<V> values = loader.apply(ownKeys);
+                    for (int i = 0; i < own.size(); i++) own.get(i).complete(values.get(i));
+                } catch (RuntimeException | Error e) {
+                    own.forEach(mine -> mine.completeExceptionally(e));
+                    throw e;
+                } finally {
+                    for (int i = 0; i < own.size(); i++) inFlight.remove(ownKeys.get(i), own.get(i));
+                }
+            }
+
+            List<V> values = new ArrayList<>(futures.size());
+            for (CompletableFuture<V> future : futures) values.add(await(future));
+            return values;
+        }
+
+        // Waiters see the leader's exception as thrown, not wrapped
+        private V await(CompletableFuture<V> running) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) throw cause;
+                if (e.getCause() instanceof Error error) throw error;
+                throw e;
+            }
+        }
+
+        Map<String, Object> stats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("inFlight", inFlight.size());
+            stats.put("loads", loads.sum());
+            stats.put("shared", shared.sum());
+            return stats;
+        }
+    }
+}
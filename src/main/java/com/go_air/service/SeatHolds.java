@@ -0,0 +1,189 @@
+package com.go_air.service;
+
+import com.go_air.enums.SeatStatus;
+import com.go_air.event.SeatsChangedEvent;
+import com.go_air.repo.SeatRepository;
+
+import jakarta.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Seat holds for checkouts: a booking moves its seats from AVAILABLE to RESERVED for
+ * {@code goair.seat-hold.ttl-minutes}, and seats whose hold lapses unpaid go back.
+ * <p>
+ * A hold is decided on the flight's {@link SeatMap} first, one compare-and-set claim over
+ * all seats of the booking, so buyers racing for the same seat are turned away in memory
+ * without a database round trip or row lock. The claim is invisible to seat map readers
+ * and dropped when the transaction ends; the seats show as RESERVED only once it commits.
+ * Only the winner writes, with a conditional UPDATE that stays the authority across
+ * instances: fewer rows than seats means the seat was taken elsewhere, and the booking
+ * fails and rolls back. Expiry and holder live in the seat row, so holds survive restarts,
+ * and lapsed holds are released in bulk by a periodic sweep, which gives their seats back
+ * to the flights' {@code available_seats} in the same statement.
+ * <p>
+ * A checkout must end before the hold does (see {@link #checkoutExpiry}), so nobody pays
+ * for a seat that has gone back on sale. Stripe sessions last at least 30 minutes, hence
+ * the hold's default of 40.
+ */
+@Service
+public class SeatHolds {
+
+    private static final Logger log = LoggerFactory.getLogger(SeatHolds.class);
+
+    @Autowired
+    private SeatRepository seatRepository;
+
+    @Autowired
+    private FlightInventory flightInventory;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${goair.seat-hold.ttl-minutes:40}")
+    private long ttlMinutes;
+
+    @Value("${goair.seat-hold.checkout-margin-minutes:5}")
+    private long checkoutMarginMinutes;
+
+    @Value("${goair.seat-hold.release-batch-size:5000}")
+    private int releaseBatchSize;
+
+    private final LongAdder holds = new LongAdder();
+    private final LongAdder heldSeats = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder released = new LongAdder();
+    private volatile LocalDateTime lastSweep;
+
+    // Stripe refuses checkout sessions that expire less than 30 minutes after they are created
+    @PostConstruct
+    void checkCheckoutWindow() {
+        if (ttlMinutes - checkoutMarginMinutes <= 30) {
+            throw new IllegalStateException("goair.seat-hold.ttl-minutes must exceed checkout-margin-minutes by more than 30");
+        }
+    }
+
+    /**
+     * Holds the given seats of one flight for {@code heldBy}, all or none, and returns when
+     * the hold lapses. Joins the caller's transaction: if it rolls back, so does the hold.
+     */
+    @Transactional
+    public LocalDateTime hold(SeatMap seatMap, Collection<String> seatNumbers, String heldBy) {
+        int[] cells = new int[seatNumbers.size()];
+        List<String> seats = new ArrayList<>(cells.length);
+        int i = 0;
+        for (String seatNumber : seatNumbers) {
+            int cell = seatMap.cellOf(seatNumber);
+            if (cell < 0) {
+                throw new RuntimeException("Seat " + seatNumber + " not found");
+            }
+            String seat = seatMap.seatNumberAt(cell);
+            if (seats.contains(seat)) {
+                throw new RuntimeException("Seat " + seatNumber + " is selected more than once");
+            }
+            cells[i++] = cell;
+            seats.add(seat);
+        }
+
+        if (!seatMap.claim(cells)) {
+            rejected.increment();
+            for (int cell : cells) {
+                if (seatMap.statusAt(cell) != SeatStatus.AVAILABLE) {
+                    throw new RuntimeException("Seat " + seatMap.seatNumberAt(cell) + " is already booked");
+                }
+            }
+            throw new RuntimeException("Seats " + seats + " are being booked by someone else");
+        }
+        // Dropped however the transaction ends; a commit shows the seats RESERVED through the event below
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                seatMap.unclaim(cells);
+            }
+        });
+
+        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(ttlMinutes);
+        int updated = seatRepository.holdSeats(seatMap.getFlightNumber(), seats, expiresAt, heldBy);
+        if (updated != seats.size()) {
+            conflicts.increment();
+            throw new RuntimeException("Seats " + seats + " are no longer available");
+        }
+
+        Map<String, SeatStatus> reserved = new HashMap<>();
+        seats.forEach(seat -> reserved.put(seat, SeatStatus.RESERVED));
+        eventPublisher.publishEvent(SeatsChangedEvent.statuses(seatMap.getFlightNumber(), reserved));
+
+        holds.increment();
+        heldSeats.add(seats.size());
+        return expiresAt;
+    }
+
+    /**
+     * When a checkout for seats held until {@code holdExpiresAt} has to close:
+     * {@code goair.seat-hold.checkout-margin-minutes} earlier, so a payment completing at
+     * the last moment is still confirmed before the sweep releases the seats.
+     */
+    public LocalDateTime checkoutExpiry(LocalDateTime holdExpiresAt) {
+        return holdExpiresAt.minusMinutes(checkoutMarginMinutes);
+    }
+
+    /**
+     * Releases up to one batch of lapsed holds and returns their seats to the flights'
+     * inventory; the rest follow on the next sweep.
+     */
+    @Scheduled(fixedDelayString = "${goair.seat-hold.sweep-interval-ms:30000}")
+    @Transactional
+    public int releaseExpired() {
+        List<Object[]> rows = seatRepository.releaseExpiredHolds(LocalDateTime.now(), releaseBatchSize);
+        lastSweep = LocalDateTime.now();
+        if (rows.isEmpty()) return 0;
+
+        Map<String, Map<String, SeatStatus>> byFlight = new HashMap<>();
+        for (Object[] row : rows) {
+            byFlight.computeIfAbsent((String) row[0], f -> new HashMap<>())
+                    .put((String) row[1], SeatStatus.AVAILABLE);
+        }
+        Map<String, Integer> returned = new HashMap<>();
+        byFlight.forEach((flightNumber, seats) -> {
+            eventPublisher.publishEvent(SeatsChangedEvent.statuses(flightNumber, seats));
+            returned.put(flightNumber, seats.size());
+        });
+        flightInventory.returned(returned);
+
+        released.add(rows.size());
+        log.info("Released {} lapsed seat holds on {} flights", rows.size(), byFlight.size());
+        return rows.size();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ttlMinutes", ttlMinutes);
+        stats.put("checkoutMarginMinutes", checkoutMarginMinutes);
+        stats.put("holds", holds.sum());
+        stats.put("heldSeats", heldSeats.sum());
+        stats.put("rejectedInMemory", rejected.sum());
+        stats.put("conflictsInDatabase", conflicts.sum());
+        stats.put("released", released.sum());
+        stats.put("lastSweep", lastSweep);
+        return stats;
+    }
+}
@@ -0,0 +1,285 @@
+package com.go_air.service;
+
+import com.go_air.enums.AircraftSize;
+import com.go_air.enums.SeatPosition;
+import com.go_air.enums.SeatStatus;
+import com.go_air.enums.SeatType;
+import com.go_air.enums.TravelClass;
+import com.go_air.model.dtos.SeatDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Compact seat map of one flight: a fixed (row, column) grid with one bitset per
+ * {@link SeatStatus}.
+ * <p>
+ * Cell {@code (row - 1) * columns + column} holds the seat labelled {@code row} +
+ * {@code 'A' + column}, the way seats are generated. The layout (ids, classes, types,
+ * positions) never changes; statuses are copy-on-write, a status change publishes new
+ * bitsets with one compare-and-set, so readers always see every seat in exactly one status
+ * and writers never lock: a writer that loses the race retries on the newer bitsets. A
+ * JUMBO map keeps its statuses in 48 longs.
+ * <p>
+ * Next to the committed statuses, one more bitset marks seats {@linkplain #claim claimed}
+ * by a transaction that has not committed yet. Claims only turn away other buyers of this
+ * node; readers ({@link #statusAt}, {@link #seats}, {@link #statusCodes}) never see them.
+ */
+public final class SeatMap {
+
+    private static final SeatStatus[] STATUSES = SeatStatus.values();
+    private static final TravelClass[] TRAVEL_CLASSES = TravelClass.values();
+    private static final SeatType[] SEAT_TYPES = SeatType.values();
+    private static final SeatPosition[] SEAT_POSITIONS = SeatPosition.values();
+
+    // Row of statusBits after the statuses: cells claimed by uncommitted holds
+    private static final int CLAIMED = STATUSES.length;
+
+    private final String flightNumber;
+    private final AircraftSize aircraftSize;
+    private final int rows;
+    private final int columns;
+    private final long version;
+    private final long loadedAt = System.nanoTime();
+
+    // Per cell, id 0 marks a cell without a seat; enums as ordinals, -1 when unset
+    private final long[] ids;
+    private final byte[] travelClasses;
+    private final byte[] seatTypes;
+    private final byte[] seatPositions;
+
+    // [SeatStatus.ordinal() or CLAIMED][word], replaced as a whole on every change; arrays never mutate once published
+    private final AtomicReference<long[][]> statusBits;
+
+    private SeatMap(String flightNumber, AircraftSize aircraftSize, long version, int rows, int columns) {
+        int cells = rows * columns;
+        this.flightNumber = flightNumber;
+        this.aircraftSize = aircraftSize;
+        this.version = version;
+        this.rows = rows;
+        this.columns = columns;
+        this.ids = new long[cells];
+        this.travelClasses = new byte[cells];
+        this.seatTypes = new byte[cells];
+        this.seatPositions = new byte[cells];
+        this.statusBits = new AtomicReference<>(new long[STATUSES.length + 1][(cells + 63) >>> 6]);
+    }
+
+    /**
+     * Builds a map from rows [id, row, column label, type, position, status, class], read
+     * after the flight's {@code version}: the rows are at least that new.
+     */
+    static SeatMap of(String flightNumber, AircraftSize aircraftSize, long version, List<Object[]> seats) {
+        int rows = 0;
+        int columns = aircraftSize != null ? aircraftSize.getSeatsPerRow() : 1;
+        for (Object[] seat : seats) {
+            rows = Math.max(rows, (Integer) seat[1]);
+            columns = Math.max(columns, columnOf((String) seat[2]) + 1);
+        }
+
+        SeatMap map = new SeatMap(flightNumber, aircraftSize, version, rows, columns);
+        long[][] bits = map.statusBits.get();
+        for (Object[] seat : seats) {
+            int column = columnOf((String) seat[2]);
+            if (column < 0 || (Integer) seat[1] < 1) continue;
+
+            int cell = map.cell((Integer) seat[1], column);
+            map.ids[cell] = (Long) seat[0];
+            map.seatTypes[cell] = ordinal((SeatType) seat[3]);
+            map.seatPositions[cell] = ordinal((SeatPosition) seat[4]);
+            map.travelClasses[cell] = ordinal((TravelClass) seat[6]);
+            SeatStatus status = (seat[5] != null) ? (SeatStatus) seat[5] : SeatStatus.AVAILABLE;
+            bits[status.ordinal()][cell >>> 6] |= 1L << cell;
+        }
+        return map;
+    }
+
+    public String getFlightNumber() {
+        return flightNumber;
+    }
+
+    public AircraftSize getAircraftSize() {
+        return aircraftSize;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    /** Flight version read before the rows; later changes of this node are applied on top. */
+    long version() {
+        return version;
+    }
+
+    /** Nanoseconds since the map was read from the database. */
+    long ageNanos() {
+        return System.nanoTime() - loadedAt;
+    }
+
+    /** Cell of a seat number like "12C" (case-insensitive), or -1 when the flight has no such seat. */
+    public int cellOf(String seatNumber) {
+        if (seatNumber == null || seatNumber.length() < 2) return -1;
+        String label = seatNumber.trim();
+        int split = label.length() - 1;
+        int column = Character.toUpperCase(label.charAt(split)) - 'A';
+        int row;
+        try {
+            row = Integer.parseInt(label.substring(0, split));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        return cellAt(row, column);
+    }
+
+    /** Cell at {@code row} (1-based) and {@code column} (0 for 'A'), or -1 when no seat is there. */
+    public int cellAt(int row, int column) {
+        if (row < 1 || row > rows || column < 0 || column >= columns) return -1;
+        int cell = cell(row, column);
+        return ids[cell] != 0 ? cell : -1;
+    }
+
+    public SeatStatus statusAt(int cell) {
+        long[][] bits = statusBits.get();
+        for (SeatStatus status : STATUSES) {
+            if ((bits[status.ordinal()][cell >>> 6] & (1L << cell)) != 0) return status;
+        }
+        return SeatStatus.AVAILABLE;
+    }
+
+    public TravelClass travelClassAt(int cell) {
+        return travelClasses[cell] < 0 ? null : TRAVEL_CLASSES[travelClasses[cell]];
+    }
+
+    public SeatType seatTypeAt(int cell) {
+        return seatTypes[cell] < 0 ? null : SEAT_TYPES[seatTypes[cell]];
+    }
+
+    public String seatNumberAt(int cell) {
+        return (cell / columns + 1) + String.valueOf((char) ('A' + cell % columns));
+    }
+
+    public int count(SeatStatus status) {
+        int count = 0;
+        for (long word : statusBits.get()[status.ordinal()]) count += Long.bitCount(word);
+        return count;
+    }
+
+    /**
+     * All statuses as one string, a character per cell in row, then column order: the
+     * status initial (A, O, R, B) or '.' where the grid has no seat.
+     */
+    public String statusCodes() {
+        long[][] bits = statusBits.get();
+        char[] codes = new char[ids.length];
+        for (int cell = 0; cell < ids.length; cell++) {
+            codes[cell] = '.';
+            if (ids[cell] == 0) continue;
+            codes[cell] = 'A';
+            for (SeatStatus s : STATUSES) {
+                if ((bits[s.ordinal()][cell >>> 6] & (1L << cell)) != 0) codes[cell] = code(s);
+            }
+        }
+        return new String(codes);
+    }
+
+    /** Single-character form of a status used by {@link #statusCodes()}. */
+    public static char code(SeatStatus status) {
+        return status.name().charAt(0);
+    }
+
+    /** Every seat in row, then column order, with the statuses of one consistent version. */
+    public List<SeatDTO> seats() {
+        long[][] bits = statusBits.get();
+        List<SeatDTO> seats = new ArrayList<>();
+        for (int cell = 0; cell < ids.length; cell++) {
+            if (ids[cell] == 0) continue;
+            SeatStatus status = SeatStatus.AVAILABLE;
+            for (SeatStatus s : STATUSES) {
+                if ((bits[s.ordinal()][cell >>> 6] & (1L << cell)) != 0) status = s;
+            }
+            seats.add(new SeatDTO(
+                    ids[cell],
+                    seatNumberAt(cell),
+                    cell / columns + 1,
+                    String.valueOf((char) ('A' + cell % columns)),
+                    seatTypeAt(cell),
+                    seatPositions[cell] < 0 ? null : SEAT_POSITIONS[seatPositions[cell]],
+                    status,
+                    travelClassAt(cell)
+            ));
+        }
+        return seats;
+    }
+
+    /** Moves the given seats to their new statuses in one published change; unknown seats are skipped. */
+    void setStatuses(Map<String, SeatStatus> statuses) {
+        long[][] current, next;
+        do {
+            current = statusBits.get();
+            next = current.clone();
+            for (SeatStatus s : STATUSES) next[s.ordinal()] = current[s.ordinal()].clone();
+
+            for (Map.Entry<String, SeatStatus> change : statuses.entrySet()) {
+                int cell = cellOf(change.getKey());
+                if (cell < 0 || change.getValue() == null) continue;
+                long mask = 1L << cell;
+                for (SeatStatus s : STATUSES) {
+                    if (s == change.getValue()) next[s.ordinal()][cell >>> 6] |= mask;
+                    else next[s.ordinal()][cell >>> 6] &= ~mask;
+                }
+            }
+        } while (!statusBits.compareAndSet(current, next));
+    }
+
+    /**
+     * Claims every given cell for an uncommitted hold, or none of them: returns false as
+     * soon as one cell is not AVAILABLE or is claimed already. Only the claim bitset is
+     * copied, the statuses are shared with the previous version.
+     */
+    boolean claim(int[] cells) {
+        long[][] current, next;
+        do {
+            current = statusBits.get();
+            long[] available = current[SeatStatus.AVAILABLE.ordinal()];
+            long[] claimed = current[CLAIMED];
+            for (int cell : cells) {
+                long mask = 1L << cell;
+                if ((available[cell >>> 6] & mask) == 0 || (claimed[cell >>> 6] & mask) != 0) return false;
+            }
+
+            next = current.clone();
+            next[CLAIMED] = claimed.clone();
+            for (int cell : cells) next[CLAIMED][cell >>> 6] |= 1L << cell;
+        } while (!statusBits.compareAndSet(current, next));
+        return true;
+    }
+
+    /** Drops the claims of {@link #claim}, whichever way their transaction ended. */
+    void unclaim(int[] cells) {
+        long[][] current, next;
+        do {
+            current = statusBits.get();
+            next = current.clone();
+            next[CLAIMED] = current[CLAIMED].clone();
+            for (int cell : cells) next[CLAIMED][cell >>> 6] &= ~(1L << cell);
+        } while (!statusBits.compareAndSet(current, next));
+    }
+
+    private int cell(int row, int column) {
+        return (row - 1) * columns + column;
+    }
+
+    private static int columnOf(String label) {
+        return (label == null || label.isEmpty()) ? -1 : Character.toUpperCase(label.charAt(0)) - 'A';
+    }
+
+    private static byte ordinal(Enum<?> value) {
+        return (byte) (value != null ? value.ordinal() : -1);
+    }
+}
@@ -0,0 +1,150 @@
+package com.go_air.service;
+
+import com.go_air.enums.AircraftSize;
+import com.go_air.event.FlightChangedEvent;
+import com.go_air.event.SeatsChangedEvent;
+import com.go_air.model.dtos.FlightSummaryDTO;
+import com.go_air.repo.FlightRepository;
+import com.go_air.repo.SeatRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lazily loaded {@link SeatMap}s, one per flight that has been looked at.
+ * <p>
+ * A flight's map is read once with a column-only query and then follows committed
+ * {@link SeatsChangedEvent}s: status changes are applied to the bitsets in place,
+ * regenerated seats or a changed flight (number, aircraft size, deletion) drop the map
+ * so the next lookup reads it again. Uncommitted holds only claim seats (see
+ * {@link SeatHolds}), so a rollback leaves nothing to undo. A load that overlaps a change of the same flight
+ * is returned but not kept, like {@link FlightSearchCache}. The least recently used
+ * maps are dropped beyond {@code goair.seat-map.max-flights}.
+ * <p>
+ * Events only cover this node's changes, so a map is read again once it is older than
+ * {@code goair.seat-map.max-age-ms}, and callers that find a seat taken or missing can
+ * {@link #reload} it before turning a buyer away: the seat may have been released or
+ * regenerated on another node. Each map remembers the flight version it was read at, so
+ * responses tagged with a newer version ({@link #get(String, long)}) never serve it.
+ */
+@Service
+public class SeatMaps {
+
+    @Autowired
+    private FlightRepository flightRepository;
+
+    @Autowired
+    private SeatRepository seatRepository;
+
+    @Value("${goair.seat-map.max-flights:5000}")
+    private int maxFlights;
+
+    @Value("${goair.seat-map.max-age-ms:30000}")
+    private long maxAgeMs;
+
+    // Access-ordered, so iteration starts at the least recently used flight
+    private final LinkedHashMap<String, SeatMap> maps = new LinkedHashMap<>(256, 0.75f, true);
+
+    // Bumped on every change of a flight's seats, checked before a load is kept
+    private final Map<String, Long> generations = new ConcurrentHashMap<>();
+
+    /** Seat map of the flight, or null when the flight does not exist or has no seats yet. */
+    public SeatMap get(String flightNumber) {
+        long token;
+        synchronized (this) {
+            SeatMap map = maps.get(flightNumber);
+            if (map != null && map.ageNanos() <= TimeUnit.MILLISECONDS.toNanos(maxAgeMs)) return map;
+            token = generations.getOrDefault(flightNumber, 0L);
+        }
+        return load(flightNumber, token);
+    }
+
+    /** Seat map of the flight if one is kept and not too old; never reads the database. */
+    public synchronized SeatMap peek(String flightNumber) {
+        SeatMap map = maps.get(flightNumber);
+        return (map != null && map.ageNanos() <= TimeUnit.MILLISECONDS.toNanos(maxAgeMs)) ? map : null;
+    }
+
+    /**
+     * Seat map of the flight at least as new as {@code minVersion} (see
+     * {@link FlightVersions}), read again when the one kept is older.
+     */
+    public SeatMap get(String flightNumber, long minVersion) {
+        SeatMap map = get(flightNumber);
+        return (map == null || map.version() >= minVersion) ? map : reload(flightNumber);
+    }
+
+    /** Seat map of the flight read from the database now, replacing the one kept. */
+    public SeatMap reload(String flightNumber) {
+        long token;
+        synchronized (this) {
+            maps.remove(flightNumber);
+            token = generations.getOrDefault(flightNumber, 0L);
+        }
+        return load(flightNumber, token);
+    }
+
+    private SeatMap load(String flightNumber, long token) {
+        // Version before the rows, so the rows are at least that new
+        List<Object[]> flight = flightRepository.findVersionByFlightNumber(flightNumber);
+        if (flight.isEmpty()) return null;
+        List<Object[]> rows = seatRepository.findSeatMapRows(flightNumber);
+        if (rows.isEmpty()) return null;
+        SeatMap loaded = SeatMap.of(flightNumber, (AircraftSize) flight.get(0)[2], (Long) flight.get(0)[1], rows);
+
+        synchronized (this) {
+            if (generations.getOrDefault(flightNumber, 0L) == token) {
+                maps.put(flightNumber, loaded);
+                Iterator<String> eldest = maps.keySet().iterator();
+                while (maps.size() > maxFlights && eldest.hasNext()) {
+                    eldest.next();
+                    eldest.remove();
+                }
+            }
+        }
+        return loaded;
+    }
+
+    // Ahead of other listeners, so anything reacting to the change (SeatStreams) reads the new map
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public synchronized void onSeatsChanged(SeatsChangedEvent event) {
+        generations.merge(event.flightNumber(), 1L, Long::sum);
+        SeatMap map = maps.get(event.flightNumber());
+        if (map == null) return;
+
+        if (event.statuses() == null) {
+            maps.remove(event.flightNumber());
+        } else {
+            map.setStatuses(event.statuses());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public synchronized void onFlightChanged(FlightChangedEvent event) {
+        FlightSummaryDTO previous = event.previous();
+        FlightSummaryDTO current = event.current();
+        if (previous == null) return;
+
+        boolean layoutChanged = current == null
+                || !Objects.equals(previous.getFlightNumber(), current.getFlightNumber())
+                || previous.getAircraftSize() != current.getAircraftSize();
+        if (layoutChanged) {
+            generations.merge(previous.getFlightNumber(), 1L, Long::sum);
+            maps.remove(previous.getFlightNumber());
+        }
+    }
+}
@@ -3,7 +3,6 @@ package com.go_air.service;
 import com.go_air.entity.Booking;
 import com.go_air.entity.Flights;
 import com.go_air.entity.Passenger;
-import com.go_air.entity.Seat;
 import com.go_air.entity.User;
 import com.go_air.enums.AircraftSize;
 import com.go_air.enums.BookingStatus;
@@ -13,8 +12,16 @@ import com.go_air.enums.JourneyStatus;
 import com.go_air.enums.PaymentStatus;
 import com.go_air.enums.SeatStatus;
 import com.go_air.enums.SpecialFareType;
+import com.go_air.enums.TravelClass;
 import com.go_air.enums.TripType;
+import com.go_air.event.FlightChangedEvent;
+import com.go_air.event.SeatsChangedEvent;
 import com.go_air.model.dtos.BookingResponseDTO;
+import com.go_air.model.dtos.FareMatrix;
+import com.go_air.model.dtos.FlightFacetsDTO;
+import com.go_air.model.dtos.FlightSummaryDTO;
+import com.go_air.model.dtos.SeatDTO;
+import com.go_air.model.dtos.ItineraryDTO;
 import com.go_air.model.dtos.PassengerResponseDTO;
 import com.go_air.model.dtos.PassengerTicketDTO;
 import com.go_air.repo.BookingRepository;
@@ -25,9 +32,15 @@ import com.go_air.repo.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionTimedOutException;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Duration;
 import java.time.LocalDate;
@@ -36,13 +49,27 @@ import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class UserService {
@@ -64,27 +91,91 @@ public class UserService {
     
     @Autowired
     private SeatRepository seatRepository;
+
+    @Autowired
+    private FlightInventoryIndex flightIndex;
+
+    @Autowired
+    private AirportSuggestionIndex suggestionIndex;
+
+    @Autowired
+    private FlightSearchCache searchCache;
+
+    @Autowired
+    private FlightRouteGraph routeGraph;
+
+    @Autowired
+    private FareCalendar fareCalendar;
+
+    @Autowired
+    private FareEngine fareEngine;
+
+    @Autowired
+    private SearchCoalescer coalescer;
+
+    @Autowired
+    private SeatMaps seatMaps;
+
+    @Autowired
+    private SeatHolds seatHolds;
+
+    @Autowired
+    private FlightInventory flightInventory;
+
+    @Autowired
+    @Qualifier("flightSearchExecutor")
+    private Executor flightSearchExecutor;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${goair.search.deadline-ms:3000}")
+    private long searchDeadlineMs;
+
+    @Value("${goair.search.multi-leg-mode:batched}")
+    private String multiLegMode;
+
+    @Value("${goair.search.connections.max-results:50}")
+    private int maxConnectingResults;
+
+    @Value("${goair.fare-calendar.max-days:366}")
+    private int fareCalendarMaxDays;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
     
     private static final Logger log = LoggerFactory.getLogger(UserService.class);
     
-    public List<String> getAirportSuggestions(String type, String query) {
+    public List<String> getAirportSuggestions(String type, String query, int limit) {
 
         if (query == null || query.trim().isEmpty()) {
             return List.of();
         }
 
+        // Identical concurrent lookups (both sources are case-insensitive) share one load
+        SearchCoalescer.SuggestionKey key = new SearchCoalescer.SuggestionKey(
+                type.toLowerCase(Locale.ROOT), query.toLowerCase(Locale.ROOT), limit);
+
+        // Until the index is ready SQL answers the same way: trimmed literal prefix, most used first, at most `limit`
+        String prefix = query.trim().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        int max = Math.max(0, limit);
+
         if (type.equalsIgnoreCase("source")) {
-            return flightRepository.searchSourceAirports(query);
+            return coalescer.suggestions(key, () -> suggestionIndex.isReady()
+                    ? suggestionIndex.suggestSources(query, limit)
+                    : flightRepository.searchSourceAirports(prefix, max));
         } 
         else if (type.equalsIgnoreCase("destination")) {
-            return flightRepository.searchDestinationAirports(query);
+            return coalescer.suggestions(key, () -> suggestionIndex.isReady()
+                    ? suggestionIndex.suggestDestinations(query, limit)
+                    : flightRepository.searchDestinationAirports(prefix, max));
         }
 
         return List.of(); // invalid type
     }
 
     
-    public Map<String, List<Flights>> searchFlightsByTripType(
+    public Map<String, List<FlightSummaryDTO>> searchFlightsByTripType(
             TripType tripType,
             List<String> airlines,
             List<String> sourceAirports,
@@ -100,7 +191,7 @@ public class UserService {
             AircraftSize aircraftSize,
             SpecialFareType specialFareType
     ) {
-        Map<String, List<Flights>> result = new LinkedHashMap<>();
+        Map<String, List<FlightSummaryDTO>> result = new LinkedHashMap<>();
 
         if (sourceAirports == null || destinationAirports == null
                 || sourceAirports.isEmpty() || destinationAirports.isEmpty()) {
@@ -135,11 +226,11 @@ public class UserService {
         }
 
         // Record for clean parameter passing
-        record FlightParams(String src, String dest, LocalDate date) {}
+        record FlightParams(String key, String src, String dest, LocalDate date) {}
 
         // Fetch + Discount function
-        Function<FlightParams, List<Flights>> fetchAndDiscount = params ->
-                applyPostFareDiscount(
+        Function<FlightParams, List<FlightSummaryDTO>> fetchAndDiscount = params ->
+                applyFares(
                         getFlightsByFilters(
                         		validAirlines, params.src(), params.dest(), params.date(),
                                 stop, bookingType, departureType,
@@ -149,27 +240,24 @@ public class UserService {
                         passengers
                 );
 
-        // Perform search based on trip type
+        // Collect the legs based on trip type
+        List<FlightParams> legs = new ArrayList<>();
         switch (tripType) {
-            case ONE_WAY -> {
-                String key = validSources.get(0) + "_" + validDestinations.get(0);
-                result.put(key, fetchAndDiscount.apply(new FlightParams(
-                        validSources.get(0),
-                        validDestinations.get(0),
-                        departureDates.get(0)
-                )));
-            }
+            case ONE_WAY -> legs.add(new FlightParams(
+                    validSources.get(0) + "_" + validDestinations.get(0),
+                    validSources.get(0),
+                    validDestinations.get(0),
+                    departureDates.get(0)
+            ));
 
             case ROUND_TRIP -> {
-                String forwardKey = validSources.get(0) + "_" + validDestinations.get(0);
-                String returnKey = validDestinations.get(0) + "_" + validSources.get(0);
-
                 // Forward flight search
-                result.put(forwardKey, fetchAndDiscount.apply(new FlightParams(
+                legs.add(new FlightParams(
+                        validSources.get(0) + "_" + validDestinations.get(0),
                         validSources.get(0),
                         validDestinations.get(0),
                         departureDates.get(0)
-                )));
+                ));
 
                 // Determine return date
                 LocalDate returnDate;
@@ -181,20 +269,13 @@ public class UserService {
                     returnDate = departureDates.get(0).plusDays(1);
                 }
 
-                // Fetch return flights
-                var returnFlights = fetchAndDiscount.apply(new FlightParams(
+                // Return flight search
+                legs.add(new FlightParams(
+                        validDestinations.get(0) + "_" + validSources.get(0),
                         validDestinations.get(0),
                         validSources.get(0),
                         returnDate
                 ));
-
-                // If no flights found, throw an exception
-                if (returnFlights == null || returnFlights.isEmpty()) {
-                    throw new RuntimeException("Flight not available for return date: " + returnDate);
-                }
-
-                // Otherwise, store results
-                result.put(returnKey, returnFlights);
             }
         
       
@@ -211,29 +292,283 @@ public class UserService {
 
                     if (src.isEmpty() || dest.isEmpty()) continue;
 
-                    String key = src + "_" + dest;
-                    result.put(key, fetchAndDiscount.apply(new FlightParams(src, dest, date)));
+                    legs.add(new FlightParams(src + "_" + dest, src, dest, date));
                 }
             }
 
             default -> throw new IllegalArgumentException("Unsupported TripType: " + tripType);
         }
+
+        // Every leg has a route and a date, so a ready index answers them all on this thread (a thread
+        // hop costs more). Only without it do several legs go to SQL: one batched statement, or one
+        // query per leg in parallel, within the search deadline either way
+        List<List<FlightSummaryDTO>> legResults;
+        if (legs.size() <= 1 || flightIndex.isReady()) {
+            legResults = legs.stream().map(fetchAndDiscount).toList();
+        } else if ("batched".equalsIgnoreCase(multiLegMode)) {
+            // Same keys as getFlightsByFilters: cached legs are served from the cache, legs another
+            // search is loading are waited for, and only the rest go to the batched statement
+            List<FlightSearchCache.SearchKey> keys = legs.stream()
+                    .map(leg -> new FlightSearchCache.SearchKey(
+                            validAirlines, leg.src(), leg.dest(), leg.date(), stop,
+                            bookingType, departureType, minPrice, adjustedMaxPrice, passengers, aircraftSize))
+                    .toList();
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(searchDeadlineMs);
+            legResults = searchCache.getOrLoadAll(keys, missed -> coalescer.flightsAll(missed, own ->
+                    withinDeadline(deadline, () -> getFlightsForLegs(
+                            own.stream().map(FlightSearchCache.SearchKey::sourceAirport).toList(),
+                            own.stream().map(FlightSearchCache.SearchKey::destinationAirport).toList(),
+                            own.stream().map(FlightSearchCache.SearchKey::departureDate).toList(),
+                            validAirlines, stop, bookingType, departureType,
+                            minPrice, adjustedMaxPrice, passengers, aircraftSize
+                    ))
+            )).stream()
+                    .map(flights -> applyFares(flights, specialFareType, passengers))
+                    .toList();
+        } else {
+            legResults = fetchLegs(legs, fetchAndDiscount);
+        }
+
+        // If no return flights found, throw an exception
+        if (tripType == TripType.ROUND_TRIP && legResults.get(1).isEmpty()) {
+            throw new RuntimeException("Flight not available for return date: " + legs.get(1).date());
+        }
+
+        // Assemble in leg order
+        for (int i = 0; i < legs.size(); i++) {
+            result.put(legs.get(i).key(), legResults.get(i));
+        }
         return result;
     }
 
-    private List<Flights> applyPostFareDiscount(List<Flights> flights, SpecialFareType fareType, Integer passengers) {
-        if (fareType == null) return flights;
+    // Facet counts and price histogram per leg, folded over the listed (discounted) flights
+    public Map<String, FlightFacetsDTO> getFacets(Map<String, List<FlightSummaryDTO>> legs, int priceBucketSize) {
+        // Checked here too: a search without legs builds no facets that would check it
+        if (priceBucketSize <= 0) throw new RuntimeException("Price bucket size must be positive");
+        Map<String, FlightFacetsDTO> facets = new LinkedHashMap<>();
+        legs.forEach((key, flights) -> facets.put(key, FlightFacets.of(flights, priceBucketSize)));
+        return facets;
+    }
+
+    /**
+     * CONNECTING trip type: itineraries from the first source to the first destination
+     * departing on the first date, direct or with up to {@code maxConnections} changes,
+     * answered from the in-memory route graph. Filters apply to every flight, the departure
+     * type to the first one (when the trip leaves), the special fare discount to every
+     * flight and the price range to the discounted itinerary total.
+     */
+    public Map<String, List<ItineraryDTO>> searchConnectingItineraries(
+            List<String> airlines,
+            List<String> sourceAirports,
+            List<String> destinationAirports,
+            List<LocalDate> departureDates,
+            Integer maxConnections,
+            Integer stop,
+            BookingType bookingType,
+            DepartureType departureType,
+            Integer minPrice,
+            Integer maxPrice,
+            Integer passengers,
+            AircraftSize aircraftSize,
+            SpecialFareType specialFareType
+    ) {
+        if (sourceAirports == null || destinationAirports == null || departureDates == null
+                || sourceAirports.isEmpty() || destinationAirports.isEmpty() || departureDates.isEmpty()) {
+            throw new RuntimeException("Source, destination and departure date are required for connecting flights.");
+        }
+        if (!routeGraph.isReady()) {
+            throw new RuntimeException("Connecting flight search is not available right now");
+        }
+
+        String src = sourceAirports.get(0).trim();
+        String dest = destinationAirports.get(0).trim();
+        if (src.equalsIgnoreCase(dest)) {
+            throw new RuntimeException("Source and destination airports cannot be the same");
+        }
+
+        List<String> validAirlines = (airlines != null)
+                ? airlines.stream().map(String::trim).filter(s -> !s.isEmpty()).toList()
+                : List.of();
+
+        if (specialFareType != null) {
+            specialFareType.validatePassengers(passengers);
+        }
+
+        Predicate<FlightSummaryDTO> legFilter = f ->
+                (validAirlines.isEmpty() || validAirlines.contains(f.getAirline()))
+                        && (stop == null || f.getStop() == stop)
+                        && (bookingType == null || f.getBookingType() == bookingType)
+                        && (aircraftSize == null || f.getAircraftSize() == aircraftSize)
+                        && (passengers == null || f.getAvailableSeats() >= passengers);
+
+        // Flights are priced (discounted) inside the search, so the price range holds before the result limit
+        List<FlightRouteGraph.Itinerary> itineraries = routeGraph.search(
+                src, dest, departureDates.get(0),
+                maxConnections != null ? maxConnections : FlightRouteGraph.MAX_CONNECTIONS,
+                legFilter,
+                f -> departureType == null || f.getDepartureType() == departureType,
+                f -> f.withFares(fareEngine.forFlight(f), specialFareType),
+                minPrice, maxPrice, maxConnectingResults
+        );
+
+        List<ItineraryDTO> result = new ArrayList<>(itineraries.size());
+        for (FlightRouteGraph.Itinerary itinerary : itineraries) {
+            List<FlightSummaryDTO> flights = itinerary.flights();
+
+            List<Integer> layovers = new ArrayList<>();
+            for (int i = 1; i < flights.size(); i++) {
+                layovers.add((int) Duration.between(
+                        FlightRouteGraph.arrivalOf(flights.get(i - 1)),
+                        FlightRouteGraph.departureOf(flights.get(i))
+                ).toMinutes());
+            }
+
+            result.add(ItineraryDTO.builder()
+                    .connections(itinerary.connections())
+                    .departure(FlightRouteGraph.toDateTime(itinerary.departure()))
+                    .arrival(FlightRouteGraph.toDateTime(itinerary.arrival()))
+                    .totalDurationMinutes(itinerary.arrival() - itinerary.departure())
+                    .layoverMinutes(layovers)
+                    .totalPrice(itinerary.price())
+                    .flights(flights)
+                    .build());
+        }
+
+        Map<String, List<ItineraryDTO>> response = new LinkedHashMap<>();
+        response.put(src + "_" + dest, result);
+        return response;
+    }
+
+    // Lowest fare per day of a route, one range read instead of a search per day
+    public Map<LocalDate, Map<TravelClass, Integer>> getFareCalendar(
+            String sourceAirport,
+            String destinationAirport,
+            LocalDate fromDate,
+            int days,
+            TravelClass travelClass
+    ) {
+        if (sourceAirport == null || sourceAirport.isBlank() || destinationAirport == null || destinationAirport.isBlank()) {
+            throw new RuntimeException("Source and destination airports are required for the fare calendar.");
+        }
+        if (days <= 0 || days > fareCalendarMaxDays) {
+            throw new RuntimeException("Fare calendar days must be between 1 and " + fareCalendarMaxDays);
+        }
+        if (!fareCalendar.isReady()) {
+            throw new RuntimeException("Fare calendar is not available right now");
+        }
+
+        LocalDate from = (fromDate != null) ? fromDate : LocalDate.now();
+        return fareCalendar.lookup(sourceAirport.trim(), destinationAirport.trim(), from, days, travelClass);
+    }
+
+    /**
+     * Runs the legs of one search concurrently on the bounded search executor and
+     * returns their results in leg order, failing the whole search once the
+     * per-request deadline has passed. The deadline holds wherever a leg runs:
+     * legs the saturated executor hands back to the caller, and legs still running
+     * or queued when the caller gives up, have their queries cancelled by the
+     * database (see {@link #withinDeadline}).
+     */
+    private <T> List<List<FlightSummaryDTO>> fetchLegs(List<T> legs, Function<T, List<FlightSummaryDTO>> fetch) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(searchDeadlineMs);
+        List<CompletableFuture<List<FlightSummaryDTO>>> futures = legs.stream()
+                .map(leg -> CompletableFuture.supplyAsync(() -> withinDeadline(deadline, () -> fetch.apply(leg)), flightSearchExecutor))
+                .toList();
+
+        List<List<FlightSummaryDTO>> results = new ArrayList<>(legs.size());
+        try {
+            for (CompletableFuture<List<FlightSummaryDTO>> future : futures) {
+                results.add(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            }
+            return results;
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Flight search timed out after " + searchDeadlineMs + " ms");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Flight search interrupted");
+        } finally {
+            // Only drops the results: the tasks are not interrupted, their query timeouts stop them
+            futures.forEach(f -> f.cancel(true));
+        }
+    }
+
+    /**
+     * Runs search queries in a read-only transaction that times out at {@code deadline}.
+     * Spring hands the time left to every query of the transaction as
+     * {@code jakarta.persistence.query.timeout}, so the database cancels a statement still
+     * running at the deadline, and a leg that only starts after it fails at once.
+     */
+    private <R> R withinDeadline(long deadline, Supplier<R> search) {
+        long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (remainingMs <= 0) {
+            throw new RuntimeException("Flight search timed out after " + searchDeadlineMs + " ms");
+        }
+
+        TransactionTemplate tx = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        tx.setReadOnly(true);
+        tx.setTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(remainingMs + 999)));
+        try {
+            return tx.execute(status -> search.get());
+        } catch (QueryTimeoutException | TransactionTimedOutException e) {
+            throw new RuntimeException("Flight search timed out after " + searchDeadlineMs + " ms");
+        }
+    }
+
+    // Summaries are immutable: fares go into new instances, never back to the row
+    private List<FlightSummaryDTO> applyFares(List<FlightSummaryDTO> flights, SpecialFareType fareType, Integer passengers) {
+        if (fareType != null) fareType.validatePassengers(passengers);
 
-        fareType.validatePassengers(passengers);
+        List<FlightSummaryDTO> priced = new ArrayList<>(flights.size());
+        for (FlightSummaryDTO f : flights) {
+            priced.add(f.withFares(fareEngine.forFlight(f), fareType));
+        }
+        return priced;
+    }
 
-        for (Flights f : flights) {
-        	Integer discountedPrice = fareType.applyDiscount(f.getPrice());
-            f.setPrice((int) (Math.round(discountedPrice * 100.0) / 100.0)); // round to 2 decimals
+    /**
+     * Fetches every leg of a multi-leg search in a single round-trip. Rows come back
+     * tagged with the index of the leg they matched and are split accordingly, so
+     * the result has one list per leg, in leg order, each sorted by price.
+     */
+    public List<List<FlightSummaryDTO>> getFlightsForLegs(
+            List<String> sources,
+            List<String> destinations,
+            List<LocalDate> dates,
+            List<String> airlines,
+            Integer stop,
+            BookingType bookingType,
+            DepartureType departureType,
+            Integer minPrice,
+            Integer maxPrice,
+            Integer passengers,
+            AircraftSize aircraftSize
+    ) {
+        List<Object[]> rows = flightRepository.findFlightsForLegs(
+                sources.toArray(String[]::new),
+                destinations.toArray(String[]::new),
+                dates.stream().map(LocalDate::toString).toArray(String[]::new),
+                (airlines != null) ? airlines.toArray(String[]::new) : new String[0],
+                stop,
+                (bookingType != null) ? bookingType.name() : null,
+                (departureType != null) ? departureType.name() : null,
+                minPrice,
+                maxPrice,
+                passengers,
+                (aircraftSize != null) ? aircraftSize.name() : null
+        );
+
+        List<List<FlightSummaryDTO>> legs = new ArrayList<>(sources.size());
+        for (int i = 0; i < sources.size(); i++) legs.add(new ArrayList<>());
+        for (Object[] row : rows) {
+            legs.get((Integer) row[1]).add((FlightSummaryDTO) row[0]);
         }
-        return flights;
+        return legs;
     }
 
-    public List<Flights> getFlightsByFilters(
+    public List<FlightSummaryDTO> getFlightsByFilters(
         List<String> airlines,
         String sourceAirport,
         String destinationAirport,
@@ -251,29 +586,83 @@ public class UserService {
     sourceAirport = (sourceAirport != null && !sourceAirport.trim().isEmpty()) ? sourceAirport.trim() : null;
     destinationAirport = (destinationAirport != null && !destinationAirport.trim().isEmpty()) ? destinationAirport.trim() : null;
 
-    String bookingTypeStr = (bookingType != null) ? bookingType.name() : null;
-    String departureTypeStr = (departureType != null) ? departureType.name() : null;
-    String aircraftSizeStr = (aircraftSize != null) ? aircraftSize.name() : null;
-
     List<String> validAirlines = (airlines != null)
             ? airlines.stream().map(String::trim).filter(s -> !s.isEmpty()).toList()
             : List.of();
 
-    
-    
-    return flightRepository.findFlightsByFilters(
-    		validAirlines,
-            sourceAirport,
-            destinationAirport,
-            departureDate,
-            stop,
-            bookingTypeStr,
-            departureTypeStr,
-            minPrice,
-            maxPrice,
-            passengers,
-            aircraftSizeStr
+    FlightSearchCache.SearchKey cacheKey = new FlightSearchCache.SearchKey(
+            validAirlines, sourceAirport, destinationAirport, departureDate, stop,
+            bookingType, departureType, minPrice, maxPrice, passengers, aircraftSize
     );
+    String source = sourceAirport;
+    String destination = destinationAirport;
+
+    // Cache misses for the same key that overlap run one query and share its result
+    return searchCache.getOrLoad(cacheKey, () -> coalescer.flights(cacheKey, () -> {
+        // Fully specified route + date is answered from memory, partial filters still go to SQL
+        if (source != null && destination != null && departureDate != null && flightIndex.isReady()) {
+            return flightIndex.search(
+                    validAirlines, source, destination, departureDate, stop,
+                    bookingType, departureType, minPrice, maxPrice, passengers, aircraftSize
+            );
+        }
+
+        return flightRepository.findFlightsByFilters(
+                validAirlines.isEmpty(),
+                validAirlines,
+                source,
+                destination,
+                departureDate,
+                stop,
+                bookingType,
+                departureType,
+                minPrice,
+                maxPrice,
+                passengers,
+                aircraftSize
+        );
+    }));
+    }
+
+    /**
+     * Streaming variant of {@link #getFlightsByFilters} for wide searches: rows come off a
+     * database cursor and go to {@code sink} one at a time, nothing is collected or cached.
+     */
+    @Transactional(readOnly = true)
+    public void streamFlightsByFilters(
+            List<String> airlines,
+            String sourceAirport,
+            String destinationAirport,
+            LocalDate departureDate,
+            Integer stop,
+            BookingType bookingType,
+            DepartureType departureType,
+            Integer minPrice,
+            Integer maxPrice,
+            Integer passengers,
+            AircraftSize aircraftSize,
+            Consumer<FlightSummaryDTO> sink
+    ) {
+        List<String> validAirlines = (airlines != null)
+                ? airlines.stream().map(String::trim).filter(s -> !s.isEmpty()).toList()
+                : List.of();
+
+        try (Stream<FlightSummaryDTO> flights = flightRepository.streamFlightsByFilters(
+                validAirlines.isEmpty(),
+                validAirlines,
+                (sourceAirport != null && !sourceAirport.trim().isEmpty()) ? sourceAirport.trim() : null,
+                (destinationAirport != null && !destinationAirport.trim().isEmpty()) ? destinationAirport.trim() : null,
+                departureDate,
+                stop,
+                bookingType,
+                departureType,
+                minPrice,
+                maxPrice,
+                passengers,
+                aircraftSize
+        )) {
+            flights.forEach(sink);
+        }
     }
 
     public String generateUniqueBookingNumber() {
@@ -313,59 +702,59 @@ public class UserService {
             throw new RuntimeException("No passengers provided for booking");
         }
 
+        // Special fare
+        SpecialFareType fareType = bookingRequest.getSpecialFareType();
+        if (fareType == null) fareType = SpecialFareType.REGULAR;
+        fareType.validatePassengers(passengers.size());
+
+        // Same matrix the search listed the flight with
+        FareMatrix fares = fareEngine.forFlight(flight);
         double totalAmount = 0.0;
 
+        // Seat checks read the flight's seat map, loaded once instead of once per passenger
+        SeatMap seatMap = seatMaps.get(flight.getFlightNumber());
+        // A seat the map has as taken or missing may have changed on another node: read it again first
         for (Passenger passenger : passengers) {
-            Seat seat = seatRepository.findSeatsByFlightNumber(flight.getFlightNumber()).stream()
-                    .filter(s -> s.getSeatNumber().equalsIgnoreCase(passenger.getSeatNo()))
-                    .findFirst()
-                    .orElseThrow(() -> new RuntimeException("Seat " + passenger.getSeatNo() + " not found"));
-
-            if (seat.getSeatStatus() != SeatStatus.AVAILABLE) {
-                throw new RuntimeException("Seat " + passenger.getSeatNo() + " is already booked");
+            int seat = (seatMap != null) ? seatMap.cellOf(passenger.getSeatNo()) : -1;
+            if (seat < 0 || seatMap.statusAt(seat) != SeatStatus.AVAILABLE) {
+                seatMap = seatMaps.reload(flight.getFlightNumber());
+                break;
             }
+        }
+        List<String> seatNumbers = new ArrayList<>();
+        FlightSummaryDTO summary = FlightChangedEvent.snapshot(flight);
 
-            boolean alreadyBooked = bookingRepo.existsByFlightNumberAndUser_UserIDAndPassengers_Name(
-                    flight.getFlightNumber(), userId, passenger.getName());
-            if (alreadyBooked) {
-                throw new RuntimeException("Passenger " + passenger.getName() +
-                        " already booked on flight " + flight.getFlightNumber());
+        for (Passenger passenger : passengers) {
+            int seat = (seatMap != null) ? seatMap.cellOf(passenger.getSeatNo()) : -1;
+            if (seat < 0) {
+                throw new RuntimeException("Seat " + passenger.getSeatNo() + " not found");
             }
 
-            boolean hasConflict = bookingRepo.existsBookingConflictByPassport(
-                    passenger.getPassportNumber(), depDate, depTime, arrDate, arrTime);
-            if (hasConflict) {
-                throw new RuntimeException("Passenger " + passenger.getName() +
-                        " with passport " + passenger.getPassportNumber() +
-                        " has another overlapping booking.");
+            if (seatMap.statusAt(seat) != SeatStatus.AVAILABLE) {
+                throw new RuntimeException("Seat " + passenger.getSeatNo() + " is already booked");
             }
 
-            passenger.setTravelClass(seat.getTravelClass());
-            passenger.setSeatType(seat.getSeatType());
+            passenger.setTravelClass(seatMap.travelClassAt(seat));
+            passenger.setSeatType(seatMap.seatTypeAt(seat));
             passenger.setDepartureType(flight.getDepartureType());
             passenger.setUser(user);
+            passenger.setDepartureAt(departureAt(summary));
+            passenger.setArrivalAt(arrivalAt(summary));
 
-            double baseFare = flight.getPrice();
-            switch (seat.getTravelClass()) {
-                case PREMIUM_ECONOMY -> baseFare *= 1.3;
-                case BUSINESS -> baseFare *= 1.8;
-                case FIRST_CLASS -> baseFare *= 2.5;
-                default -> baseFare *= 1.0;
-            }
-
-            totalAmount += baseFare;
-
-            seat.setSeatStatus(SeatStatus.AVAILABLE);
-            seatRepository.save(seat);
+            totalAmount += fares.fare(seatMap.travelClassAt(seat), fareType);
+            seatNumbers.add(passenger.getSeatNo());
         }
 
-        // Special fare
-        SpecialFareType fareType = bookingRequest.getSpecialFareType();
-        if (fareType == null) fareType = SpecialFareType.REGULAR;
+        // Duplicate names and overlapping passports, two queries for all passengers
+        List<String> conflicts = passengerConflicts(userId, List.of(bookingRequest),
+                Map.of(flight.getFlightNumber(), summary));
+        if (!conflicts.isEmpty()) {
+            throw new RuntimeException(String.join("; ", conflicts));
+        }
 
-        fareType.validatePassengers(passengers.size());
-        double totalDiscount = (flight.getPrice() - fareType.applyDiscount(flight.getPrice())) * passengers.size();
-        double finalAmount = Math.max(totalAmount - totalDiscount, 0);
+        // Hold the seats until payment (all or none); unpaid holds lapse back to AVAILABLE
+        String heldBy = (bookingRequest.getBookingNo() != null) ? bookingRequest.getBookingNo() : userId;
+        bookingRequest.setHoldExpiresAt(seatHolds.hold(seatMap, seatNumbers, heldBy));
 
         bookingRequest.setUser(user);
         bookingRequest.setPassengers(passengers);
@@ -374,7 +763,7 @@ public class UserService {
         bookingRequest.setStatus(BookingStatus.PENDING);
         bookingRequest.setJourneyStatus(JourneyStatus.SCHEDULED);
         bookingRequest.setSpecialFareType(fareType);
-        bookingRequest.setTotalAmount(finalAmount);
+        bookingRequest.setTotalAmount(totalAmount);
         bookingRequest.setAircraftSize(flight.getAircraftSize());
         bookingRequest.setTripType(bookingRequest.getTripType());
         bookingRequest.setDepartureDate(depDate);
@@ -384,12 +773,123 @@ public class UserService {
 
         Booking savedBooking = bookingRepo.save(bookingRequest);
 
-        flight.setAvailableSeats(flight.getAvailableSeats() - passengers.size());
-        flightRepository.save(flight);
+        // Last, so the flight row is locked only until the commit right after
+        flightInventory.take(FlightChangedEvent.snapshot(flight), passengers.size());
 
         return savedBooking;
     }
     
+    /**
+     * Checks the passengers of every leg of an itinerary before any leg is booked, and fails
+     * with all conflicts at once: names the user already booked on a flight, passports with an
+     * overlapping booking, and the same within the itinerary itself. {@link #bookFlight} still
+     * checks its own leg when it books.
+     */
+    @Transactional(readOnly = true)
+    public void checkPassengers(String userId, List<Booking> bookingRequests) {
+        Set<String> flightNumbers = new HashSet<>();
+        for (Booking leg : bookingRequests) {
+            if (leg.getFlightNumber() != null) flightNumbers.add(leg.getFlightNumber());
+        }
+        if (flightNumbers.isEmpty()) return;
+
+        Map<String, FlightSummaryDTO> flights = new HashMap<>();
+        for (FlightSummaryDTO flight : flightRepository.findSummariesByFlightNumbers(flightNumbers)) {
+            flights.put(flight.getFlightNumber(), flight);
+        }
+
+        List<String> conflicts = passengerConflicts(userId, bookingRequests, flights);
+        if (!conflicts.isEmpty()) {
+            throw new RuntimeException(String.join("; ", conflicts));
+        }
+    }
+
+    // Every passenger conflict of the given legs, with one query for names and one for passports
+    private List<String> passengerConflicts(String userId, List<Booking> legs, Map<String, FlightSummaryDTO> flights) {
+        record Traveller(Passenger passenger, FlightSummaryDTO flight) {}
+
+        List<Traveller> travellers = new ArrayList<>();
+        for (Booking leg : legs) {
+            FlightSummaryDTO flight = flights.get(leg.getFlightNumber());
+            if (flight == null || leg.getPassengers() == null) continue;
+            for (Passenger passenger : leg.getPassengers()) travellers.add(new Traveller(passenger, flight));
+        }
+        if (travellers.isEmpty()) return List.of();
+
+        List<String> conflicts = new ArrayList<>();
+
+        // Names already booked by this user on the same flight
+        Set<String> names = new HashSet<>();
+        travellers.forEach(t -> { if (t.passenger().getName() != null) names.add(t.passenger().getName()); });
+        if (!names.isEmpty()) {
+            Set<List<String>> booked = new HashSet<>();
+            for (Object[] row : bookingRepo.findBookedPassengerNames(userId, flights.keySet(), names)) {
+                booked.add(List.of((String) row[0], (String) row[1]));
+            }
+            for (Traveller t : travellers) {
+                String name = t.passenger().getName();
+                if (name != null && booked.contains(List.of(t.flight().getFlightNumber(), name))) {
+                    conflicts.add("Passenger " + name + " already booked on flight " + t.flight().getFlightNumber());
+                }
+            }
+        }
+
+        // Passports with an overlapping booking; array position i + 1 is traveller i
+        int n = travellers.size();
+        String[] passports = new String[n], departures = new String[n], arrivals = new String[n];
+        for (int i = 0; i < n; i++) {
+            FlightSummaryDTO flight = travellers.get(i).flight();
+            passports[i] = travellers.get(i).passenger().getPassportNumber();
+            departures[i] = Objects.toString(departureAt(flight), null);
+            arrivals[i] = Objects.toString(arrivalAt(flight), null);
+        }
+        Set<Long> overlapping = new HashSet<>(bookingRepo.findOverlappingPassports(passports, departures, arrivals));
+        for (int i = 0; i < n; i++) {
+            if (overlapping.contains((long) i + 1)) {
+                Passenger passenger = travellers.get(i).passenger();
+                conflicts.add("Passenger " + passenger.getName() + " with passport " +
+                        passenger.getPassportNumber() + " has another overlapping booking.");
+            }
+        }
+
+        // Within the request: a name twice on one flight, a passport on two overlapping flights
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                Traveller a = travellers.get(i), b = travellers.get(j);
+                String flightNumber = a.flight().getFlightNumber();
+                if (flightNumber.equals(b.flight().getFlightNumber())
+                        && a.passenger().getName() != null && a.passenger().getName().equals(b.passenger().getName())) {
+                    conflicts.add("Passenger " + a.passenger().getName() + " is listed more than once on flight " + flightNumber);
+                }
+                if (a.passenger().getPassportNumber() != null
+                        && a.passenger().getPassportNumber().equals(b.passenger().getPassportNumber())
+                        && overlaps(a.flight(), b.flight())) {
+                    conflicts.add("Passenger " + b.passenger().getName() + " with passport " +
+                            b.passenger().getPassportNumber() + " is on overlapping flights " +
+                            flightNumber + " and " + b.flight().getFlightNumber());
+                }
+            }
+        }
+        return conflicts;
+    }
+
+    // Same rule as the passport query: each departs before the other arrives
+    private static boolean overlaps(FlightSummaryDTO a, FlightSummaryDTO b) {
+        LocalDateTime aDep = departureAt(a), aArr = arrivalAt(a), bDep = departureAt(b), bArr = arrivalAt(b);
+        if (aDep == null || aArr == null || bDep == null || bArr == null) return false;
+        return aDep.isBefore(bArr) && bDep.isBefore(aArr);
+    }
+
+    private static LocalDateTime departureAt(FlightSummaryDTO flight) {
+        return (flight.getDepartureDate() != null && flight.getDepartureTime() != null)
+                ? LocalDateTime.of(flight.getDepartureDate(), flight.getDepartureTime()) : null;
+    }
+
+    private static LocalDateTime arrivalAt(FlightSummaryDTO flight) {
+        return (flight.getArrivalDate() != null && flight.getArrivalTime() != null)
+                ? LocalDateTime.of(flight.getArrivalDate(), flight.getArrivalTime()) : null;
+    }
+
     public List<Booking> getBookingsByBookingNo(String bookingNo) {
 
         if (bookingNo == null || bookingNo.isEmpty()) {
@@ -412,39 +912,56 @@ public class UserService {
 
         if (pendingBookings.isEmpty()) return;
 
-        for (Booking booking : pendingBookings) {
+        // One statement for the status of every booking
+        bookingRepo.updatePaymentOutcome(
+                pendingBookings.stream().map(Booking::getId).toList(), bookingStatus, paymentStatus, paymentId);
 
-            booking.setStatus(bookingStatus);
-            booking.setPaymentStatus(paymentStatus);
-            booking.setPaymentID(paymentId);
-            bookingRepo.save(booking);
+        // only when confirmed
+        log.info("bookingStatus == BookingStatus.CONFIRMED : "+(bookingStatus == BookingStatus.CONFIRMED));
+        if (bookingStatus != BookingStatus.CONFIRMED) return;
 
-            // only when confirmed
-            log.info("bookingStatus == BookingStatus.CONFIRMED : "+(bookingStatus == BookingStatus.CONFIRMED));
-            if (bookingStatus == BookingStatus.CONFIRMED) {
-
-                // UPDATE SEAT STATUS
-                for (Passenger passenger : booking.getPassengers()) {
-                    Seat seat = seatRepository
-                            .findByFlight_FlightNumberAndSeatNumber(
-                                    booking.getFlightNumber(),
-                                    passenger.getSeatNo()
-                            )
-                            .orElseThrow(() -> new RuntimeException(
-                                    "Seat " + passenger.getSeatNo() +
-                                            " not found on flight " + booking.getFlightNumber()));
-
-                    seat.setSeatStatus(SeatStatus.OCCUPIED);
-                    seatRepository.save(seat);
-                }
+        // Seats and holders per flight (a multi-city booking has one booking per flight),
+        // flights in a fixed order so concurrent confirmations lock their rows in the same order
+        Map<String, Set<String>> seatsByFlight = new TreeMap<>();
+        Map<String, Set<String>> holdersByFlight = new HashMap<>();
+        for (Booking booking : pendingBookings) {
+            String flightNumber = booking.getFlightNumber();
+            Set<String> seats = seatsByFlight.computeIfAbsent(flightNumber, f -> new LinkedHashSet<>());
+            for (Passenger passenger : booking.getPassengers()) {
+                seats.add(passenger.getSeatNo().trim().toUpperCase(Locale.ROOT));
+            }
+            // Same holder as bookFlight used for the seat hold
+            holdersByFlight.computeIfAbsent(flightNumber, f -> new HashSet<>())
+                    .add(booking.getBookingNo() != null ? booking.getBookingNo() : userId);
+        }
 
-                // UPDATE AVAILABLE SEATS
-                Flights flight = flightRepository.findByFlightNumber(booking.getFlightNumber())
-                        .orElseThrow(() -> new RuntimeException("Flight not found: " + booking.getFlightNumber()));
+        Map<String, FlightSummaryDTO> flights = new HashMap<>();
+        for (FlightSummaryDTO flight : flightRepository.findSummariesByFlightNumbers(seatsByFlight.keySet())) {
+            flights.put(flight.getFlightNumber(), flight);
+        }
 
-                flight.setAvailableSeats(flight.getAvailableSeats() - booking.getPassengerCount());
-                flightRepository.save(flight);
+        for (Map.Entry<String, Set<String>> entry : seatsByFlight.entrySet()) {
+            String flightNumber = entry.getKey();
+            Set<String> seats = entry.getValue();
+            FlightSummaryDTO flight = flights.get(flightNumber);
+            if (flight == null) {
+                throw new RuntimeException("Flight not found: " + flightNumber);
             }
+
+            // UPDATE SEAT STATUS
+            List<String> before = seatRepository.occupySeats(flightNumber,
+                    seats.toArray(String[]::new), holdersByFlight.get(flightNumber).toArray(String[]::new));
+            if (before.size() != seats.size()) {
+                throw new RuntimeException("Seats " + seats + " are not all available on flight " + flightNumber);
+            }
+            Map<String, SeatStatus> seatChanges = new HashMap<>();
+            seats.forEach(seat -> seatChanges.put(seat, SeatStatus.OCCUPIED));
+            eventPublisher.publishEvent(SeatsChangedEvent.statuses(flightNumber, seatChanges));
+
+            // bookFlight took available_seats for held seats; only seats whose hold lapsed
+            // (and went back to the inventory) are taken again
+            int lapsed = (int) before.stream().filter(status -> SeatStatus.AVAILABLE.name().equals(status)).count();
+            if (lapsed > 0) flightInventory.take(flight, lapsed);
         }
     }
 
@@ -823,17 +1340,16 @@ public class UserService {
     
 
     
-	public List<Seat> getSeatsByFlightNumber(String flightNumber) {
+	public List<SeatDTO> getSeatsByFlightNumber(String flightNumber) {
+        return getSeatsByFlightNumber(flightNumber, 0);
+	}
+
+	// Seats at least as new as the flight version the response is tagged with (see FlightVersions)
+	public List<SeatDTO> getSeatsByFlightNumber(String flightNumber, long minVersion) {
         log.info("UserService Line no 808 | Flight No : {}",flightNumber);
-		// TODO Auto-generated method stub
-        List<Seat> seats = seatRepository.findSeatsByFlightNumber(flightNumber);
-//        log.info("Seats--------------------->>>{}",seats);
-        
-        
-//        List<Seat> allseats = seatRepository.findAllSeats();
-//        log.info("Seats--------------------->>>{}",allseats.size());
-//        
-        return seats;
+        // Served from the flight's bitset seat map, no Seat entities are loaded
+        SeatMap seatMap = seatMaps.get(flightNumber, minVersion);
+        return (seatMap != null) ? seatMap.seats() : List.of();
 	}
 
 
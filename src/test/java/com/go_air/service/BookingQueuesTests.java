@@ -0,0 +1,229 @@
+package com.go_air.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.go_air.entity.Booking;
+import com.go_air.entity.Passenger;
+
+/**
+ * {@link BookingQueues} in queued mode against a stubbed {@link UserService} and transaction
+ * manager. The writer runs on the test thread when {@link #runWriter()} is called, so every
+ * caller is queued before the batch is taken.
+ */
+class BookingQueuesTests {
+
+	private static final String FLIGHT = "GQ100";
+	private static final String USER = "TSTQ01";
+	private static final String TAKEN = "9Z";
+
+	private final BlockingQueue<Runnable> writerTasks = new LinkedBlockingQueue<>();
+	private final List<Long> incomingIds = new CopyOnWriteArrayList<>();
+	private final AtomicLong nextId = new AtomicLong(1);
+
+	private UserService userService;
+	private PlatformTransactionManager transactionManager;
+	private BookingQueues bookingQueues;
+	private ExecutorService callers;
+
+	@BeforeEach
+	void setUp() {
+		userService = mock(UserService.class);
+		when(userService.bookFlight(eq(USER), any())).thenAnswer(invocation -> {
+			Booking booking = invocation.getArgument(1);
+			Passenger passenger = booking.getPassengers().get(0);
+			if (TAKEN.equals(passenger.getSeatNo())) throw new RuntimeException("Seat " + TAKEN + " is taken");
+			// What a rolled back persist leaves behind
+			incomingIds.add(booking.getId());
+			incomingIds.add(passenger.getId());
+			booking.setId(nextId.getAndIncrement());
+			passenger.setId(nextId.getAndIncrement());
+			return booking;
+		});
+
+		transactionManager = mock(PlatformTransactionManager.class);
+		when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+
+		bookingQueues = new BookingQueues();
+		ReflectionTestUtils.setField(bookingQueues, "userService", userService);
+		ReflectionTestUtils.setField(bookingQueues, "transactionTemplate", new TransactionTemplate(transactionManager));
+		ReflectionTestUtils.setField(bookingQueues, "bookingQueueExecutor", (Executor) writerTasks::add);
+		ReflectionTestUtils.setField(bookingQueues, "mode", "queued");
+		ReflectionTestUtils.setField(bookingQueues, "maxBatch", 32);
+		ReflectionTestUtils.setField(bookingQueues, "maxPending", 100);
+		ReflectionTestUtils.setField(bookingQueues, "timeoutMs", 5000L);
+
+		callers = Executors.newCachedThreadPool();
+	}
+
+	@AfterEach
+	void tearDown() {
+		callers.shutdownNow();
+	}
+
+	@Test
+	void queuedBookingsOfOneFlightCommitInOneTransaction() throws Exception {
+		List<Future<Booking>> results = book("1A", "1B", "1C");
+		runWriter();
+
+		for (Future<Booking> result : results) {
+			assertNotNull(result.get(5, TimeUnit.SECONDS).getId());
+		}
+		verify(transactionManager, times(1)).commit(any());
+		verify(transactionManager, never()).rollback(any());
+		assertEquals(1L, stats().get("batches"));
+		assertEquals(3.0, stats().get("avgBatchSize"));
+		assertEquals(0L, stats().get("fallbacks"));
+	}
+
+	@Test
+	void failingBookingGetsItsErrorAndTheRestAreBookedAgainWithoutIt() throws Exception {
+		List<Future<Booking>> results = book("2A", TAKEN, "2C");
+		runWriter();
+
+		int failed = 0;
+		for (Future<Booking> result : results) {
+			try {
+				assertNotNull(result.get(5, TimeUnit.SECONDS).getId());
+			} catch (ExecutionException e) {
+				assertEquals("Seat " + TAKEN + " is taken", e.getCause().getMessage());
+				failed++;
+			}
+		}
+		assertEquals(1, failed);
+		verify(transactionManager, times(1)).rollback(any());
+		verify(transactionManager, times(1)).commit(any());
+		assertEquals(1L, stats().get("fallbacks"));
+		// Bookings persisted by the rolled back attempt come back without their ids
+		incomingIds.forEach(id -> assertNull(id));
+	}
+
+	@Test
+	void commitFailureBooksTheBatchOneByOne() throws Exception {
+		doThrow(new TransactionSystemException("commit failed")).when(transactionManager).commit(any());
+
+		List<Future<Booking>> results = book("3A", "3B");
+		runWriter();
+
+		for (Future<Booking> result : results) {
+			assertNotNull(result.get(5, TimeUnit.SECONDS).getId());
+		}
+		// Once in the batch, once more alone
+		verify(userService, times(4)).bookFlight(eq(USER), any());
+		assertEquals(0L, stats().get("batches"));
+		assertEquals(1L, stats().get("fallbacks"));
+		incomingIds.forEach(id -> assertNull(id));
+	}
+
+	@Test
+	void errorInTheWriterFailsEveryWaitingCaller() throws Exception {
+		doThrow(new InternalError("writer died")).when(userService).bookFlight(eq(USER), any());
+
+		List<Future<Booking>> results = book("4A", "4B");
+		assertThrows(InternalError.class, this::runWriter);
+
+		for (Future<Booking> result : results) {
+			ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+			assertInstanceOf(IllegalStateException.class, e.getCause());
+			assertInstanceOf(InternalError.class, e.getCause().getCause());
+		}
+	}
+
+	@Test
+	void callerOfABookingStillRunningGivesUpAfterTheTimeoutAgain() throws Exception {
+		ReflectionTestUtils.setField(bookingQueues, "timeoutMs", 300L);
+		CountDownLatch release = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			release.await();
+			return invocation.getArgument(1);
+		}).when(userService).bookFlight(eq(USER), any());
+
+		List<Future<Booking>> results = book("5A");
+		Thread writer = new Thread(this::runWriter);
+		writer.start();
+		try {
+			ExecutionException e = assertThrows(ExecutionException.class, () -> results.get(0).get(5, TimeUnit.SECONDS));
+			assertTrue(e.getCause().getMessage().contains("taking too long"), e.getCause().getMessage());
+		} finally {
+			release.countDown();
+			writer.join(5000);
+		}
+		assertEquals(0L, stats().get("withdrawn"));
+	}
+
+	// One caller per seat, returned once all of them are queued
+	private List<Future<Booking>> book(String... seats) throws InterruptedException {
+		List<Future<Booking>> results = new ArrayList<>();
+		for (String seat : seats) {
+			Booking request = booking(seat);
+			results.add(callers.submit(() -> bookingQueues.book(USER, request)));
+		}
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (((Number) stats().get("waiting")).intValue() < seats.length) {
+			assertTrue(System.nanoTime() < deadline, "callers were not queued");
+			Thread.sleep(5);
+		}
+		return results;
+	}
+
+	// Runs the writer turns scheduled so far, and any they schedule in turn
+	private void runWriter() {
+		Runnable task;
+		while ((task = writerTasks.poll()) != null) {
+			task.run();
+		}
+	}
+
+	private Map<String, Object> stats() {
+		return bookingQueues.stats();
+	}
+
+	private Booking booking(String seatNo) {
+		Passenger passenger = new Passenger();
+		passenger.setName("Queue " + seatNo);
+		passenger.setSeatNo(seatNo);
+		passenger.setPassportNumber("PQ" + seatNo);
+
+		Booking booking = new Booking();
+		booking.setFlightNumber(FLIGHT);
+		booking.setPassengers(new ArrayList<>(List.of(passenger)));
+		return booking;
+	}
+}
@@ -0,0 +1,154 @@
+package com.go_air.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.go_air.entity.Booking;
+import com.go_air.entity.Flights;
+import com.go_air.entity.Passenger;
+import com.go_air.entity.User;
+import com.go_air.enums.AircraftSize;
+import com.go_air.enums.BookingStatus;
+import com.go_air.enums.BookingType;
+import com.go_air.enums.DepartureType;
+import com.go_air.enums.Gender;
+import com.go_air.enums.PaymentStatus;
+import com.go_air.repo.UserRepository;
+
+@SpringBootTest
+class SeatHoldsTests {
+
+	private static final String FLIGHT = "GT9021";
+	private static final String USER = "TST021";
+	private static final int SEATS = 16;
+
+	@Autowired
+	private AdminService adminService;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private SeatHolds seatHolds;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@BeforeEach
+	void setUp() {
+		cleanUp();
+		userRepository.save(User.builder().userID(USER).username("seat-holds-test").role("USER").build());
+		adminService.createFlight(Flights.builder()
+				.flightNumber(FLIGHT)
+				.airline("GoAir")
+				.sourceAirport("TSA")
+				.destinationAirport("TSB")
+				.bookingType(BookingType.REFUNDABLE)
+				.departureType(DepartureType.MORNING)
+				.aircraftSize(AircraftSize.LIGHT)
+				.departureDate(LocalDate.of(2031, 1, 5))
+				.departureTime(LocalTime.of(9, 0))
+				.arrivalDate(LocalDate.of(2031, 1, 5))
+				.arrivalTime(LocalTime.of(10, 30))
+				.durationMinutes(90)
+				.price(4000)
+				.availableSeats(SEATS)
+				.build());
+		adminService.generateSeatsForFlight(FLIGHT);
+	}
+
+	@AfterEach
+	void cleanUp() {
+		jdbc.update("DELETE FROM passenger WHERE booking_id IN (SELECT id FROM booking WHERE flight_number = ?)", FLIGHT);
+		jdbc.update("DELETE FROM booking WHERE flight_number = ?", FLIGHT);
+		adminService.deleteFlightByFlightNumber(FLIGHT);
+		jdbc.update("DELETE FROM users WHERE userid = ?", USER);
+	}
+
+	@Test
+	void lapsedHoldGivesItsSeatBackToTheInventory() {
+		userService.bookFlight(USER, booking("1A", "Ann Hold", "PT021A"));
+		assertEquals(SEATS - 1, availableSeats());
+		assertEquals("RESERVED", seatStatus("1A"));
+
+		// The hold lapses unpaid and the sweep releases it
+		jdbc.update("UPDATE seats SET hold_expires_at = now() - interval '1 minute' WHERE flight_number = ? AND seat_number = '1A'", FLIGHT);
+		seatHolds.releaseExpired();
+		assertEquals(SEATS, availableSeats());
+		assertEquals("AVAILABLE", seatStatus("1A"));
+
+		// The same seat can be booked again, and is counted once
+		userService.bookFlight(USER, booking("1A", "Bob Hold", "PT021B"));
+		assertEquals(SEATS - 1, availableSeats());
+		assertEquals("RESERVED", seatStatus("1A"));
+	}
+
+	@Test
+	void paymentConfirmsHeldSeatsWithoutTakingInventoryAgain() {
+		userService.bookFlight(USER, booking("2A", "Cy Hold", "PT021C"));
+		userService.updateBookingAfterPayment(USER, BookingStatus.CONFIRMED, PaymentStatus.SUCCESS, "pi_test_021");
+		assertEquals(SEATS - 1, availableSeats());
+		assertEquals("OCCUPIED", seatStatus("2A"));
+	}
+
+	@Test
+	void paymentAfterALapsedHoldTakesTheSeatAgain() {
+		userService.bookFlight(USER, booking("3A", "Di Hold", "PT021D"));
+		jdbc.update("UPDATE seats SET hold_expires_at = now() - interval '1 minute' WHERE flight_number = ? AND seat_number = '3A'", FLIGHT);
+		seatHolds.releaseExpired();
+		assertEquals(SEATS, availableSeats());
+
+		userService.updateBookingAfterPayment(USER, BookingStatus.CONFIRMED, PaymentStatus.SUCCESS, "pi_test_021");
+		assertEquals(SEATS - 1, availableSeats());
+		assertEquals("OCCUPIED", seatStatus("3A"));
+	}
+
+	@Test
+	void regeneratingSeatsKeepsHoldsSoPaymentTakesNoInventoryAgain() {
+		userService.bookFlight(USER, booking("4A", "Ed Hold", "PT021E"));
+		adminService.generateSeatsForFlight(FLIGHT);
+		assertEquals(SEATS - 1, availableSeats());
+		assertEquals("RESERVED", seatStatus("4A"));
+
+		userService.updateBookingAfterPayment(USER, BookingStatus.CONFIRMED, PaymentStatus.SUCCESS, "pi_test_021");
+		assertEquals(SEATS - 1, availableSeats());
+		assertEquals("OCCUPIED", seatStatus("4A"));
+	}
+
+	private Booking booking(String seatNo, String name, String passport) {
+		Passenger passenger = new Passenger();
+		passenger.setName(name);
+		passenger.setSeatNo(seatNo);
+		passenger.setPassportNumber(passport);
+		passenger.setAge(30);
+		passenger.setGender(Gender.FEMALE);
+
+		Booking booking = new Booking();
+		booking.setFlightNumber(FLIGHT);
+		booking.setPassengers(new ArrayList<>(List.of(passenger)));
+		return booking;
+	}
+
+	private int availableSeats() {
+		return jdbc.queryForObject("SELECT available_seats FROM flights WHERE flight_number = ?", Integer.class, FLIGHT);
+	}
+
+	private String seatStatus(String seatNo) {
+		return jdbc.queryForObject("SELECT seat_status FROM seats WHERE flight_number = ? AND seat_number = ?",
+				String.class, FLIGHT, seatNo);
+	}
+}
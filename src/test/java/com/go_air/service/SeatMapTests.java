@@ -0,0 +1,227 @@
+package com.go_air.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.go_air.enums.AircraftSize;
+import com.go_air.enums.SeatPosition;
+import com.go_air.enums.SeatStatus;
+import com.go_air.enums.SeatType;
+import com.go_air.enums.TravelClass;
+
+class SeatMapTests {
+
+	private static final String FLIGHT = "GM016";
+
+	@Test
+	void cellsFollowRowAndColumnLabels() {
+		SeatMap map = map(AircraftSize.LIGHT, 3, Map.of());
+
+		assertEquals(4, map.getColumns());
+		assertEquals(3, map.getRows());
+		assertEquals(0, map.cellOf("1A"));
+		assertEquals(3, map.cellOf("1D"));
+		assertEquals(4, map.cellOf("2A"));
+		assertEquals(10, map.cellOf(" 3c "));
+		assertEquals("3C", map.seatNumberAt(10));
+		assertEquals(10, map.cellAt(3, 2));
+	}
+
+	@Test
+	void seatsOutsideTheGridHaveNoCell() {
+		SeatMap map = map(AircraftSize.LIGHT, 3, Map.of());
+
+		assertEquals(-1, map.cellOf("4A"));
+		assertEquals(-1, map.cellOf("0A"));
+		assertEquals(-1, map.cellOf("1E"));
+		assertEquals(-1, map.cellOf("A1"));
+		assertEquals(-1, map.cellOf("1"));
+		assertEquals(-1, map.cellOf(null));
+		assertEquals(-1, map.cellAt(1, -1));
+	}
+
+	@Test
+	void gridCellWithoutASeatIsSkipped() {
+		List<Object[]> rows = rows(AircraftSize.LIGHT, 2, Map.of());
+		rows.removeIf(row -> (Integer) row[1] == 1 && "B".equals(row[2]));
+		SeatMap map = SeatMap.of(FLIGHT, AircraftSize.LIGHT, 0, rows);
+
+		assertEquals(-1, map.cellOf("1B"));
+		assertEquals("A.AAAAAA", map.statusCodes());
+		assertEquals(7, map.seats().size());
+		assertEquals(7, map.count(SeatStatus.AVAILABLE));
+	}
+
+	@Test
+	void loadedStatusesAndLayoutAreKeptPerCell() {
+		SeatMap map = map(AircraftSize.LIGHT, 2, Map.of("1B", SeatStatus.OCCUPIED, "2D", SeatStatus.BLOCKED));
+
+		assertEquals(SeatStatus.OCCUPIED, map.statusAt(map.cellOf("1B")));
+		assertEquals(SeatStatus.BLOCKED, map.statusAt(map.cellOf("2D")));
+		assertEquals(SeatStatus.AVAILABLE, map.statusAt(map.cellOf("1A")));
+		assertEquals("AOAAAAAB", map.statusCodes());
+		assertEquals(SeatType.WINDOW, map.seatTypeAt(map.cellOf("1A")));
+		assertEquals(SeatType.AISLE, map.seatTypeAt(map.cellOf("1B")));
+		assertEquals(TravelClass.BUSINESS, map.travelClassAt(map.cellOf("1A")));
+		assertEquals(TravelClass.ECONOMY, map.travelClassAt(map.cellOf("2A")));
+	}
+
+	@Test
+	void jumboMapSpansSeveralWords() {
+		SeatMap map = map(AircraftSize.JUMBO, 50, Map.of("7D", SeatStatus.RESERVED, "7E", SeatStatus.OCCUPIED));
+
+		// Cells 63 and 64 sit on either side of the first word boundary, 499 is the last cell
+		assertEquals(63, map.cellOf("7D"));
+		assertEquals(64, map.cellOf("7E"));
+		assertEquals(SeatStatus.RESERVED, map.statusAt(63));
+		assertEquals(SeatStatus.OCCUPIED, map.statusAt(64));
+
+		map.setStatuses(Map.of("50J", SeatStatus.BLOCKED));
+		assertEquals(499, map.cellOf("50J"));
+		assertEquals(SeatStatus.BLOCKED, map.statusAt(499));
+		assertEquals('B', map.statusCodes().charAt(499));
+		assertEquals(497, map.count(SeatStatus.AVAILABLE));
+	}
+
+	@Test
+	void statusChangesLeaveEverySeatInExactlyOneStatus() {
+		SeatMap map = map(AircraftSize.LIGHT, 2, Map.of());
+
+		Map<String, SeatStatus> changes = new HashMap<>();
+		changes.put("1A", SeatStatus.OCCUPIED);
+		changes.put("1B", SeatStatus.RESERVED);
+		changes.put("9Z", SeatStatus.OCCUPIED);
+		changes.put("2A", null);
+		map.setStatuses(changes);
+		assertEquals("ORAAAAAA", map.statusCodes());
+
+		map.setStatuses(Map.of("1A", SeatStatus.AVAILABLE, "1B", SeatStatus.OCCUPIED));
+		assertEquals("AOAAAAAA", map.statusCodes());
+		assertEquals(7, map.count(SeatStatus.AVAILABLE));
+		assertEquals(1, map.count(SeatStatus.OCCUPIED));
+		assertEquals(0, map.count(SeatStatus.RESERVED));
+	}
+
+	@Test
+	void claimTakesAllCellsOrNone() {
+		SeatMap map = map(AircraftSize.LIGHT, 2, Map.of("2A", SeatStatus.OCCUPIED));
+		int a = map.cellOf("1A"), b = map.cellOf("1B"), c = map.cellOf("1C");
+
+		assertTrue(map.claim(new int[] {a, b}));
+		// 1B is claimed, so 1C is not claimed either
+		assertFalse(map.claim(new int[] {c, b}));
+		assertTrue(map.claim(new int[] {c}));
+		// Not AVAILABLE
+		assertFalse(map.claim(new int[] {map.cellOf("2A")}));
+
+		// Readers only see committed statuses
+		assertEquals(SeatStatus.AVAILABLE, map.statusAt(a));
+		assertEquals("AAAAOAAA", map.statusCodes());
+
+		map.unclaim(new int[] {a, b});
+		assertTrue(map.claim(new int[] {a, b}));
+		assertFalse(map.claim(new int[] {c}));
+	}
+
+	@Test
+	void concurrentClaimsOfOneSeatHaveOneWinner() throws Exception {
+		int threads = 8;
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			for (int round = 0; round < 50; round++) {
+				SeatMap map = map(AircraftSize.LIGHT, threads + 1, Map.of());
+				int contested = map.cellOf("1A");
+				CountDownLatch start = new CountDownLatch(1);
+				List<Future<Boolean>> claims = new ArrayList<>();
+				for (int t = 0; t < threads; t++) {
+					// Each thread also wants a seat of its own, which a lost claim must leave free
+					int own = map.cellOf((t + 2) + "A");
+					claims.add(pool.submit(() -> {
+						start.await();
+						return map.claim(new int[] {own, contested});
+					}));
+				}
+				start.countDown();
+
+				int winners = 0;
+				for (int t = 0; t < threads; t++) {
+					if (claims.get(t).get(5, TimeUnit.SECONDS)) {
+						winners++;
+					} else {
+						assertTrue(map.claim(new int[] {map.cellOf((t + 2) + "A")}));
+					}
+				}
+				assertEquals(1, winners);
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	void concurrentStatusChangesAreNotLost() throws Exception {
+		int threads = 10;
+		SeatMap map = map(AircraftSize.JUMBO, 50, Map.of());
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<?>> writers = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				// Thread t occupies column t of every row, one seat per change
+				char column = (char) ('A' + t);
+				writers.add(pool.submit(() -> {
+					start.await();
+					for (int row = 1; row <= 50; row++) {
+						map.setStatuses(Map.of(row + String.valueOf(column), SeatStatus.OCCUPIED));
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> writer : writers) writer.get(5, TimeUnit.SECONDS);
+		} finally {
+			pool.shutdownNow();
+		}
+
+		assertEquals(500, map.count(SeatStatus.OCCUPIED));
+		assertEquals(0, map.count(SeatStatus.AVAILABLE));
+	}
+
+	private static SeatMap map(AircraftSize size, int rows, Map<String, SeatStatus> statuses) {
+		return SeatMap.of(FLIGHT, size, 0, rows(size, rows, statuses));
+	}
+
+	// Every seat of the grid as a seat map row, the first row in BUSINESS
+	private static List<Object[]> rows(AircraftSize size, int rows, Map<String, SeatStatus> statuses) {
+		int columns = size.getSeatsPerRow();
+		List<Object[]> seats = new ArrayList<>();
+		long id = 1;
+		for (int row = 1; row <= rows; row++) {
+			for (int column = 0; column < columns; column++) {
+				String label = String.valueOf((char) ('A' + column));
+				boolean window = column == 0 || column == columns - 1;
+				seats.add(new Object[] {
+						id++, row, label,
+						window ? SeatType.WINDOW : SeatType.AISLE,
+						column < columns / 2 ? SeatPosition.LEFT : SeatPosition.RIGHT,
+						statuses.get(row + label),
+						row == 1 ? TravelClass.BUSINESS : TravelClass.ECONOMY
+				});
+			}
+		}
+		return seats;
+	}
+}